@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.benchmark;
+
+import io.riddles.lightriders.tournament.LightridersBot;
+import io.riddles.lightriders.tournament.LightridersMatch;
+import io.riddles.lightriders.tournament.SafeMoveBot;
+
+import java.util.ArrayList;
+
+/**
+ * io.riddles.lightriders.benchmark.BenchmarkGames
+ *
+ * Creates played games to run the benchmarks on.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+final class BenchmarkGames {
+
+    private BenchmarkGames() {}
+
+    /**
+     * Plays a game between SafeMoveBots with a fixed seed.
+     * @param size Width and height of the field
+     * @param players Amount of players
+     * @param maxRounds Rounds to play at most
+     * @return The played match
+     */
+    static LightridersMatch play(int size, int players, int maxRounds) {
+        ArrayList<LightridersBot> bots = new ArrayList<>();
+        for (int i = 0; i < players; i++) {
+            bots.add(new SafeMoveBot());
+        }
+
+        LightridersMatch match = new LightridersMatch(bots, size, size, maxRounds, "benchmark");
+        match.run();
+
+        return match;
+    }
+}
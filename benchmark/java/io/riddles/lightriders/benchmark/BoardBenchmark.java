@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.benchmark;
+
+import io.riddles.lightriders.game.board.LightridersBoard;
+import io.riddles.lightriders.game.state.LightridersState;
+import io.riddles.lightriders.tournament.LightridersMatch;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * io.riddles.lightriders.benchmark.BoardBenchmark
+ *
+ * Benchmarks encoding the board for the bots and parsing it back.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    @Param({"16", "64", "256", "1024"})
+    public int size;
+
+    @Param({"2", "4"})
+    public int players;
+
+    private LightridersBoard board;
+    private String field;
+    private Point emptyPoint;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LightridersMatch match = BenchmarkGames.play(this.size, this.players, this.size / 2);
+        LightridersState state = match.getInitialState();
+
+        while (state.hasNextState()) {
+            state = (LightridersState) state.getNextState();
+        }
+
+        this.board = new LightridersBoard(state.getBoard());
+        this.field = this.board.toString();
+        this.emptyPoint = new Point(0, 0);
+    }
+
+    /**
+     * Changes a cell first, so the encoded field has to be built again.
+     */
+    @Benchmark
+    public String encodeField() {
+        this.board.setFieldAt(this.emptyPoint, this.board.getFieldAt(this.emptyPoint));
+        return this.board.toString();
+    }
+
+    @Benchmark
+    public String encodeFieldCached() {
+        return this.board.toString();
+    }
+
+    @Benchmark
+    public LightridersBoard parseField() {
+        this.board.setFieldsFromString(this.field);
+        return this.board;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.benchmark;
+
+import io.riddles.lightriders.env.LightridersVectorEnv;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * io.riddles.lightriders.benchmark.EnvironmentBenchmark
+ *
+ * Benchmarks the vectorized environment in environment steps per second,
+ * one step being a round in one game, with random actions that are
+ * generated before measuring.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnvironmentBenchmark {
+
+    private static final int ACTION_SETS = 64;
+
+    @Param({"1024"})
+    public int envCount;
+
+    @Param({"16"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private LightridersVectorEnv env;
+    private int[][] actions;
+    private int step;
+
+    /**
+     * Counts the environment steps, reported by JMH as steps per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Steps {
+
+        public long steps;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.steps = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.env = new LightridersVectorEnv(this.envCount, 2, this.size, this.size, -1, "benchmark");
+        this.env.setParallel(this.parallel);
+        this.env.reset();
+
+        Random random = new Random(1);
+        this.actions = new int[ACTION_SETS][this.envCount * 2];
+        for (int[] actions : this.actions) {
+            for (int i = 0; i < actions.length; i++) {
+                // Mostly keep going, so games last a while
+                actions[i] = random.nextInt(8) < 6 ? 4 : random.nextInt(4);
+            }
+        }
+    }
+
+    @Benchmark
+    public byte[] step(Steps steps) {
+        this.env.step(this.actions[this.step++ % ACTION_SETS]);
+        steps.steps += this.envCount;
+
+        return this.env.getDones();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.benchmark;
+
+import io.riddles.lightriders.game.board.LightridersBoard;
+import io.riddles.lightriders.game.move.LightridersMove;
+import io.riddles.lightriders.game.move.MoveType;
+import io.riddles.lightriders.game.processor.LightridersLogic;
+import io.riddles.lightriders.game.state.LightridersPlayerState;
+import io.riddles.lightriders.game.state.LightridersState;
+import io.riddles.lightriders.tournament.LightridersMatch;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * io.riddles.lightriders.benchmark.LogicBenchmark
+ *
+ * Benchmarks a round of the game: creating the next state and
+ * transforming it with the players' moves.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogicBenchmark {
+
+    @Param({"16", "64", "256", "1024"})
+    public int size;
+
+    @Param({"2", "4"})
+    public int players;
+
+    private LightridersBoard board;
+    private ArrayList<LightridersPlayerState> playerStates;
+    private LightridersState state;
+    private LightridersState nextState;
+
+    @Setup(Level.Trial)
+    public void setUpGame() {
+        LightridersMatch match = BenchmarkGames.play(this.size, this.players, this.size / 2);
+        LightridersState state = match.getInitialState();
+
+        while (state.hasNextState()) {
+            state = (LightridersState) state.getNextState();
+        }
+
+        this.board = new LightridersBoard(state.getBoard());
+        this.playerStates = state.getPlayerStates();
+    }
+
+    /**
+     * Creates a state in the middle of a game that holds the board, like
+     * the latest state during a match, and the state for the next round.
+     */
+    @Setup(Level.Invocation)
+    public void setUpRound() {
+        ArrayList<LightridersPlayerState> playerStates = new ArrayList<>();
+        for (LightridersPlayerState playerState : this.playerStates) {
+            playerStates.add(new LightridersPlayerState(playerState));
+        }
+
+        LightridersState initialState = new LightridersState(playerStates, new LightridersBoard(this.board));
+        this.state = initialState.createNextState(1);
+        this.state.getBoard();
+
+        this.nextState = this.state.createNextState(2);
+        for (LightridersPlayerState playerState : this.nextState.getPlayerStates()) {
+            playerState.setMove(new LightridersMove(MoveType.PASS));
+        }
+    }
+
+    @Benchmark
+    public LightridersState transform() {
+        LightridersLogic.transform(this.nextState);
+        return this.nextState;
+    }
+
+    @Benchmark
+    public LightridersBoard createNextState() {
+        return this.state.createNextState(2).getBoard();
+    }
+
+    @Benchmark
+    public LightridersBoard copyBoard() {
+        return new LightridersBoard(this.board);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.benchmark;
+
+import io.riddles.lightriders.game.move.LightridersMove;
+import io.riddles.lightriders.game.move.LightridersMoveDeserializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * io.riddles.lightriders.benchmark.MoveDeserializerBenchmark
+ *
+ * Benchmarks parsing bot responses, both valid moves and garbage.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveDeserializerBenchmark {
+
+    @Param({"up", "LEFT", "pass", "garbage"})
+    public String input;
+
+    private LightridersMoveDeserializer deserializer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.deserializer = new LightridersMoveDeserializer();
+    }
+
+    @Benchmark
+    public LightridersMove parseMove() {
+        return this.deserializer.traverse(this.input);
+    }
+}
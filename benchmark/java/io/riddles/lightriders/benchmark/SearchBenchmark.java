@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.benchmark;
+
+import io.riddles.lightriders.game.move.MoveType;
+import io.riddles.lightriders.game.state.LightridersState;
+import io.riddles.lightriders.search.LightridersSearchState;
+import io.riddles.lightriders.search.LightridersUndoRecord;
+import io.riddles.lightriders.tournament.LightridersMatch;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * io.riddles.lightriders.benchmark.SearchBenchmark
+ *
+ * Benchmarks the search state in nodes per second: a single joint move
+ * that is made and undone, and a full width search of both players'
+ * moves to a fixed depth from the middle of a game.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final MoveType[] DIRECTIONS = {MoveType.UP, MoveType.DOWN, MoveType.LEFT, MoveType.RIGHT};
+
+    @Param({"16", "64"})
+    public int size;
+
+    @Param({"4"})
+    public int depth;
+
+    private LightridersSearchState search;
+    private LightridersUndoRecord[] undoRecords;
+    private MoveType[][] moves;
+
+    /**
+     * Counts the searched nodes, reported by JMH as nodes per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.nodes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LightridersMatch match = BenchmarkGames.play(this.size, 2, this.size / 2);
+        LightridersState state = match.getInitialState();
+
+        while (state.hasNextState()) {
+            state = (LightridersState) state.getNextState();
+        }
+
+        this.search = new LightridersSearchState(state);
+        this.undoRecords = new LightridersUndoRecord[this.depth];
+        this.moves = new MoveType[this.depth][2];
+
+        for (int i = 0; i < this.depth; i++) {
+            this.undoRecords[i] = new LightridersUndoRecord(2);
+        }
+    }
+
+    @Benchmark
+    public int makeUnmakeMove() {
+        MoveType[] moves = this.moves[0];
+        moves[0] = this.search.getPlayerState(0).getDirection();
+        moves[1] = this.search.getPlayerState(1).getDirection();
+
+        this.search.makeMove(moves, this.undoRecords[0]);
+        int aliveCount = this.search.getAliveCount();
+        this.search.unmakeMove(this.undoRecords[0]);
+
+        return aliveCount;
+    }
+
+    @Benchmark
+    public long search(Nodes nodes) {
+        long searched = search(0);
+        nodes.nodes += searched;
+
+        return searched;
+    }
+
+    private long search(int ply) {
+        if (ply == this.depth || this.search.isFinished()) {
+            return 1;
+        }
+
+        LightridersUndoRecord undo = this.undoRecords[ply];
+        MoveType[] moves = this.moves[ply];
+        MoveType back0 = this.search.getPlayerState(0).getDirection().getOpposite();
+        MoveType back1 = this.search.getPlayerState(1).getDirection().getOpposite();
+        long nodes = 1;
+
+        for (MoveType move0 : DIRECTIONS) {
+            if (move0 == back0) continue;
+
+            for (MoveType move1 : DIRECTIONS) {
+                if (move1 == back1) continue;
+
+                moves[0] = move0;
+                moves[1] = move1;
+                this.search.makeMove(moves, undo);
+                nodes += search(ply + 1);
+                this.search.unmakeMove(undo);
+            }
+        }
+
+        return nodes;
+    }
+}
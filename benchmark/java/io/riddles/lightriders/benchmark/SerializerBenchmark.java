@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.benchmark;
+
+import io.riddles.lightriders.game.LightridersSerializer;
+import io.riddles.lightriders.game.state.LightridersState;
+import io.riddles.lightriders.game.state.LightridersStateSerializer;
+import io.riddles.lightriders.tournament.LightridersMatch;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * io.riddles.lightriders.benchmark.SerializerBenchmark
+ *
+ * Benchmarks serializing a single state and a full played game.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+
+    @Param({"16", "64", "256", "1024"})
+    public int size;
+
+    @Param({"2", "4"})
+    public int players;
+
+    private LightridersMatch match;
+    private LightridersState state;
+    private LightridersStateSerializer stateSerializer;
+    private LightridersSerializer serializer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.match = BenchmarkGames.play(this.size, this.players, this.size * 2);
+        this.state = this.match.getInitialState();
+
+        while (this.state.hasNextState()) {
+            this.state = (LightridersState) this.state.getNextState();
+        }
+
+        this.stateSerializer = new LightridersStateSerializer();
+        this.serializer = new LightridersSerializer();
+    }
+
+    @Benchmark
+    public JSONObject serializeState() {
+        return this.stateSerializer.traverseToJson(this.state);
+    }
+
+    @Benchmark
+    public String serializeGame() {
+        return this.serializer.traverseToString(this.match.getProcessor(), this.match.getInitialState());
+    }
+}
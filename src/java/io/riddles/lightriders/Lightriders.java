@@ -23,6 +23,9 @@ import io.riddles.javainterface.game.player.PlayerProvider;
 import io.riddles.javainterface.io.IOHandler;
 import io.riddles.lightriders.engine.LightridersEngine;
 import io.riddles.lightriders.game.state.LightridersState;
+import io.riddles.lightriders.server.LightridersMatchServer;
+
+import java.util.Arrays;
 
 /**
  * io.riddles.lightriders.Lightriders
@@ -34,6 +37,11 @@ import io.riddles.lightriders.game.state.LightridersState;
 public class Lightriders {
 
     public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("server")) {
+            LightridersMatchServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         LightridersEngine engine = new LightridersEngine(new PlayerProvider<>(), new IOHandler());
 
         LightridersState initialState = engine.willRun();
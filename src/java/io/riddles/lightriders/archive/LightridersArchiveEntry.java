@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.archive;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * io.riddles.lightriders.archive.LightridersArchiveEntry
+ *
+ * Index entry of one match in an archive: what the match was and where
+ * its played game is stored. Stored in the index file as:
+ *
+ * - match id, seed (string)
+ * - player count (short), then the name of each player (string)
+ * - winner id (int, -1 for a draw), round count (int)
+ * - segment (int), offset (long) and length (int) of the played game
+ *
+ * Strings are stored as their length in bytes (int) followed by UTF-8.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersArchiveEntry {
+
+    public static final int DRAW = -1;
+
+    private String matchId;
+    private String seed;
+    private List<String> players;
+    private int winnerId;
+    private int roundCount;
+    private int segment;
+    private long offset;
+    private int length;
+
+    public LightridersArchiveEntry(String matchId, String seed, List<String> players, int winnerId,
+                                   int roundCount, int segment, long offset, int length) {
+        this.matchId = matchId;
+        this.seed = seed;
+        this.players = Collections.unmodifiableList(new ArrayList<>(players));
+        this.winnerId = winnerId;
+        this.roundCount = roundCount;
+        this.segment = segment;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public String getMatchId() {
+        return this.matchId;
+    }
+
+    public String getSeed() {
+        return this.seed;
+    }
+
+    public List<String> getPlayers() {
+        return this.players;
+    }
+
+    public int getWinnerId() {
+        return this.winnerId;
+    }
+
+    public boolean isDraw() {
+        return this.winnerId == DRAW;
+    }
+
+    /**
+     * @return Name of the winner, null for a draw
+     */
+    public String getWinner() {
+        return isDraw() ? null : this.players.get(this.winnerId);
+    }
+
+    public int getRoundCount() {
+        return this.roundCount;
+    }
+
+    public int getSegment() {
+        return this.segment;
+    }
+
+    public long getOffset() {
+        return this.offset;
+    }
+
+    public int getLength() {
+        return this.length;
+    }
+
+    void write(DataOutputStream output) throws IOException {
+        writeString(output, this.matchId);
+        writeString(output, this.seed);
+        output.writeShort(this.players.size());
+        for (String player : this.players) {
+            writeString(output, player);
+        }
+        output.writeInt(this.winnerId);
+        output.writeInt(this.roundCount);
+        output.writeInt(this.segment);
+        output.writeLong(this.offset);
+        output.writeInt(this.length);
+    }
+
+    /**
+     * Reads an entry at the position of the buffer.
+     * @throws BufferUnderflowException When the entry isn't complete
+     */
+    static LightridersArchiveEntry read(ByteBuffer buffer) {
+        String matchId = readString(buffer);
+        String seed = readString(buffer);
+        int playerCount = buffer.getShort();
+        ArrayList<String> players = new ArrayList<>(playerCount);
+        for (int i = 0; i < playerCount; i++) {
+            players.add(readString(buffer));
+        }
+
+        return new LightridersArchiveEntry(matchId, seed, players, buffer.getInt(), buffer.getInt(),
+                buffer.getInt(), buffer.getLong(), buffer.getInt());
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
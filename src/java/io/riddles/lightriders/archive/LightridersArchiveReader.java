@@ -0,0 +1,226 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.archive;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * io.riddles.lightriders.archive.LightridersArchiveReader
+ *
+ * Reads an archive written by LightridersArchiveWriter. The index is read
+ * once when opening, the segments are memory-mapped when first needed, so
+ * loading a played game is a single read from the mapped segment without
+ * opening any files.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersArchiveReader implements Closeable {
+
+    private File directory;
+    private ArrayList<LightridersArchiveEntry> entries;
+    private HashMap<String, LightridersArchiveEntry> entriesByMatchId;
+    private HashMap<String, List<LightridersArchiveEntry>> entriesBySeed;
+    private HashMap<String, List<LightridersArchiveEntry>> entriesByPlayer;
+    private ArrayList<MappedByteBuffer> segments;
+
+    public LightridersArchiveReader(File directory) throws IOException {
+        this.directory = directory;
+        this.entries = new ArrayList<>();
+        this.entriesByMatchId = new HashMap<>();
+        this.entriesBySeed = new HashMap<>();
+        this.entriesByPlayer = new HashMap<>();
+        this.segments = new ArrayList<>();
+
+        File indexFile = new File(directory, LightridersArchiveWriter.INDEX_FILE);
+        if (!indexFile.isFile()) {
+            throw new IOException("No archive index in " + directory);
+        }
+
+        readIndex(indexFile, this.entries);
+        for (LightridersArchiveEntry entry : this.entries) {
+            this.entriesByMatchId.put(entry.getMatchId(), entry);
+            this.entriesBySeed.computeIfAbsent(entry.getSeed(), key -> new ArrayList<>()).add(entry);
+            for (String player : new HashSet<>(entry.getPlayers())) {
+                this.entriesByPlayer.computeIfAbsent(player, key -> new ArrayList<>()).add(entry);
+            }
+        }
+    }
+
+    /**
+     * Reads all complete entries of an index file. An entry that was only
+     * partly written, for example because the writer was killed, is ignored.
+     * @param indexFile Index file to read
+     * @param entries List to add the entries to
+     * @return Amount of bytes of the index that hold complete entries
+     * @throws IOException When the file isn't an archive index
+     */
+    static long readIndex(File indexFile, List<LightridersArchiveEntry> entries) throws IOException {
+        ByteBuffer buffer = map(indexFile);
+
+        if (buffer.remaining() < 5 || buffer.getInt() != LightridersArchiveWriter.INDEX_MAGIC) {
+            throw new IOException(indexFile + " is not an archive index");
+        }
+
+        int version = buffer.get();
+        if (version != LightridersArchiveWriter.VERSION) {
+            throw new IOException("Unsupported archive version " + version);
+        }
+
+        int validLength = buffer.position();
+        while (buffer.hasRemaining()) {
+            try {
+                entries.add(LightridersArchiveEntry.read(buffer));
+            } catch (BufferUnderflowException ex) {
+                break;
+            }
+            validLength = buffer.position();
+        }
+
+        return validLength;
+    }
+
+    public List<LightridersArchiveEntry> getEntries() {
+        return Collections.unmodifiableList(this.entries);
+    }
+
+    /**
+     * @param matchId Id of the match
+     * @return Entry of the match, null if it isn't in the archive
+     */
+    public LightridersArchiveEntry getEntry(String matchId) {
+        return this.entriesByMatchId.get(matchId);
+    }
+
+    public List<LightridersArchiveEntry> find(Predicate<LightridersArchiveEntry> predicate) {
+        ArrayList<LightridersArchiveEntry> found = new ArrayList<>();
+
+        for (LightridersArchiveEntry entry : this.entries) {
+            if (predicate.test(entry)) {
+                found.add(entry);
+            }
+        }
+
+        return found;
+    }
+
+    public List<LightridersArchiveEntry> findBySeed(String seed) {
+        return Collections.unmodifiableList(
+                this.entriesBySeed.getOrDefault(seed, Collections.emptyList()));
+    }
+
+    public List<LightridersArchiveEntry> findByPlayer(String player) {
+        return Collections.unmodifiableList(
+                this.entriesByPlayer.getOrDefault(player, Collections.emptyList()));
+    }
+
+    /**
+     * @param player Name of the winner, null for draws
+     * @return Entries of the matches the player won
+     */
+    public List<LightridersArchiveEntry> findByWinner(String player) {
+        if (player == null) {
+            return find(LightridersArchiveEntry::isDraw);
+        }
+
+        ArrayList<LightridersArchiveEntry> found = new ArrayList<>();
+        for (LightridersArchiveEntry entry : findByPlayer(player)) {
+            if (player.equals(entry.getWinner())) {
+                found.add(entry);
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * @param matchId Id of the match
+     * @return Played game of the match, as written by LightridersSerializer
+     * @throws IOException When the match isn't in the archive or reading fails
+     */
+    public String readPlayedGame(String matchId) throws IOException {
+        LightridersArchiveEntry entry = getEntry(matchId);
+
+        if (entry == null) {
+            throw new IOException("Match " + matchId + " is not in the archive");
+        }
+
+        return readPlayedGame(entry);
+    }
+
+    public String readPlayedGame(LightridersArchiveEntry entry) throws IOException {
+        return StandardCharsets.UTF_8.decode(getRecord(entry)).toString();
+    }
+
+    /**
+     * Gets the UTF-8 bytes of the played game without copying them.
+     * @param entry Entry of the match
+     * @return Read-only view on the mapped segment
+     * @throws IOException When mapping the segment fails
+     */
+    public ByteBuffer getRecord(LightridersArchiveEntry entry) throws IOException {
+        ByteBuffer record = getSegment(entry);
+        record.position((int) entry.getOffset());
+        record.limit((int) entry.getOffset() + entry.getLength());
+
+        return record.slice();
+    }
+
+    @Override
+    public void close() {
+        // Mapped buffers are released by the garbage collector
+        this.segments.clear();
+    }
+
+    private synchronized ByteBuffer getSegment(LightridersArchiveEntry entry) throws IOException {
+        int segment = entry.getSegment();
+
+        while (this.segments.size() <= segment) {
+            this.segments.add(null);
+        }
+
+        MappedByteBuffer buffer = this.segments.get(segment);
+        if (buffer == null || buffer.capacity() < entry.getOffset() + entry.getLength()) {
+            buffer = map(new File(this.directory, LightridersArchiveWriter.getSegmentFileName(segment)));
+            this.segments.set(segment, buffer);
+        }
+
+        return buffer.asReadOnlyBuffer();
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+}
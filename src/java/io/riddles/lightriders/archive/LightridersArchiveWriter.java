@@ -0,0 +1,278 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.archive;
+
+import io.riddles.lightriders.game.LightridersSerializer;
+import io.riddles.lightriders.game.processor.LightridersProcessor;
+import io.riddles.lightriders.game.state.LightridersState;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * io.riddles.lightriders.archive.LightridersArchiveWriter
+ *
+ * Appends played games of many matches to an archive directory, so they
+ * don't have to be stored as one file per match. The directory holds:
+ *
+ * - segment-00000.lra, segment-00001.lra, ...: the played games, as
+ *   written by LightridersSerializer, one per line
+ * - index.lri: magic "LRAI", format version (1 byte), then a
+ *   LightridersArchiveEntry per match in the order they were added
+ *
+ * A new segment is started when the current one reaches the maximum
+ * segment size. The played game is written before its index entry, so a
+ * reader never sees an entry without its game. Reopening an archive
+ * continues it and drops anything written after the last complete entry,
+ * including segments that were started after it.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersArchiveWriter implements Closeable {
+
+    public static final String INDEX_FILE = "index.lri";
+    public static final int INDEX_MAGIC = 0x4C524149; // LRAI
+    public static final int VERSION = 1;
+
+    // Segments are mapped as a whole, which Java only supports up to 2GB
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 1L << 30;
+
+    private File directory;
+    private long maxSegmentBytes;
+    private HashSet<String> matchIds;
+    private DataOutputStream index;
+    private FileOutputStream segmentStream;
+    private Writer segmentWriter;
+    private int segment;
+
+    public LightridersArchiveWriter(File directory) throws IOException {
+        this(directory, DEFAULT_MAX_SEGMENT_BYTES);
+    }
+
+    public LightridersArchiveWriter(File directory, long maxSegmentBytes) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create archive directory " + directory);
+        }
+
+        this.directory = directory;
+        this.maxSegmentBytes = Math.min(maxSegmentBytes, Integer.MAX_VALUE);
+        this.matchIds = new HashSet<>();
+
+        File indexFile = new File(directory, INDEX_FILE);
+        long segmentLength = 0;
+
+        if (indexFile.isFile()) {
+            ArrayList<LightridersArchiveEntry> entries = new ArrayList<>();
+            truncate(indexFile, LightridersArchiveReader.readIndex(indexFile, entries));
+
+            for (LightridersArchiveEntry entry : entries) {
+                this.matchIds.add(entry.getMatchId());
+            }
+
+            if (!entries.isEmpty()) {
+                LightridersArchiveEntry last = entries.get(entries.size() - 1);
+                this.segment = last.getSegment();
+                segmentLength = last.getOffset() + last.getLength() + 1;
+            }
+        } else {
+            try (DataOutputStream output = new DataOutputStream(new FileOutputStream(indexFile))) {
+                output.writeInt(INDEX_MAGIC);
+                output.writeByte(VERSION);
+            }
+        }
+
+        File segmentFile = new File(directory, getSegmentFileName(this.segment));
+        if (segmentFile.isFile()) {
+            truncate(segmentFile, segmentLength);
+        }
+        deleteSegmentsAfter(this.segment);
+
+        this.index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true)));
+        openSegment();
+    }
+
+    public static String getSegmentFileName(int segment) {
+        return String.format("segment-%05d.lra", segment);
+    }
+
+    /**
+     * Writes the played game of a match straight into the archive.
+     * @param matchId Unique id of the match
+     * @param seed Seed of the match
+     * @param players Names of the players, in player id order
+     * @param processor Processor of the played game
+     * @param initialState First state of the game
+     * @return Entry of the match
+     * @throws IOException When writing fails
+     */
+    public synchronized LightridersArchiveEntry append(String matchId, String seed, List<String> players,
+                                                       LightridersProcessor processor,
+                                                       LightridersState initialState) throws IOException {
+        LightridersState finalState = initialState;
+        while (finalState.hasNextState()) {
+            finalState = (LightridersState) finalState.getNextState();
+        }
+
+        Integer winnerId = processor.getWinnerId(finalState);
+        long offset = startRecord(matchId);
+        try {
+            new LightridersSerializer().traverseToWriter(processor, initialState, this.segmentWriter);
+        } catch (IOException | RuntimeException ex) {
+            abortRecord(offset);
+            throw ex;
+        }
+
+        return finishRecord(matchId, seed, players,
+                winnerId != null ? winnerId : LightridersArchiveEntry.DRAW, finalState.getRoundNumber(), offset);
+    }
+
+    /**
+     * Adds an already serialized played game to the archive.
+     * @param matchId Unique id of the match
+     * @param seed Seed of the match
+     * @param players Names of the players, in player id order
+     * @param winnerId Id of the winner, LightridersArchiveEntry.DRAW for a draw
+     * @param roundCount Amount of rounds played
+     * @param playedGame Played game as written by LightridersSerializer
+     * @return Entry of the match
+     * @throws IOException When writing fails
+     */
+    public synchronized LightridersArchiveEntry append(String matchId, String seed, List<String> players,
+                                                       int winnerId, int roundCount,
+                                                       String playedGame) throws IOException {
+        long offset = startRecord(matchId);
+        try {
+            this.segmentWriter.write(playedGame);
+        } catch (IOException ex) {
+            abortRecord(offset);
+            throw ex;
+        }
+
+        return finishRecord(matchId, seed, players, winnerId, roundCount, offset);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            this.segmentWriter.close();
+        } finally {
+            this.index.close();
+        }
+    }
+
+    private long startRecord(String matchId) throws IOException {
+        if (this.matchIds.contains(matchId)) {
+            throw new IllegalArgumentException("Match " + matchId + " is already in the archive");
+        }
+
+        if (getSegmentLength() >= this.maxSegmentBytes) {
+            this.segmentWriter.close();
+            this.segment++;
+            openSegment();
+        }
+
+        return getSegmentLength();
+    }
+
+    private LightridersArchiveEntry finishRecord(String matchId, String seed, List<String> players,
+                                                 int winnerId, int roundCount, long offset) throws IOException {
+        long length;
+        try {
+            this.segmentWriter.write('\n');
+            this.segmentWriter.flush();
+
+            length = getSegmentLength() - offset - 1;
+            if (offset + length > Integer.MAX_VALUE) {
+                throw new IOException("Played game of match " + matchId + " doesn't fit in a segment");
+            }
+        } catch (IOException ex) {
+            abortRecord(offset);
+            throw ex;
+        }
+
+        LightridersArchiveEntry entry = new LightridersArchiveEntry(
+                matchId, seed, players, winnerId, roundCount, this.segment, offset, (int) length);
+        entry.write(this.index);
+        this.index.flush();
+        this.matchIds.add(matchId);
+
+        return entry;
+    }
+
+    /**
+     * Drops the part of a record that was already written, including what
+     * is still buffered, so it doesn't end up in front of the next record.
+     */
+    private void abortRecord(long offset) throws IOException {
+        this.segmentStream.close();
+        truncate(new File(this.directory, getSegmentFileName(this.segment)), offset);
+        openSegment();
+    }
+
+    /**
+     * Deletes segments that were started after the last complete entry,
+     * so a later rollover doesn't append to what is left in them.
+     */
+    private void deleteSegmentsAfter(int lastSegment) throws IOException {
+        File[] files = this.directory.listFiles();
+        if (files == null) {
+            throw new IOException("Can't list archive directory " + this.directory);
+        }
+
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.matches("segment-\\d+\\.lra")) continue;
+
+            int segment = Integer.parseInt(name.substring("segment-".length(), name.length() - ".lra".length()));
+            if (segment > lastSegment && !file.delete()) {
+                throw new IOException("Can't delete " + file);
+            }
+        }
+    }
+
+    private void openSegment() throws IOException {
+        this.segmentStream = new FileOutputStream(new File(this.directory, getSegmentFileName(this.segment)), true);
+        this.segmentWriter = new BufferedWriter(new OutputStreamWriter(this.segmentStream, StandardCharsets.UTF_8));
+    }
+
+    private long getSegmentLength() throws IOException {
+        return this.segmentStream.getChannel().position();
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            if (randomAccessFile.length() > length) {
+                randomAccessFile.setLength(length);
+            }
+        }
+    }
+}
@@ -26,19 +26,38 @@ import io.riddles.javainterface.exception.TerminalException;
 import io.riddles.javainterface.game.player.PlayerProvider;
 import io.riddles.javainterface.io.IOHandler;
 import io.riddles.lightriders.game.board.LightridersBoard;
+import io.riddles.lightriders.game.board.LightridersOffHeapCellStorage;
 
 import io.riddles.lightriders.game.move.MoveType;
 import io.riddles.lightriders.game.player.LightridersPlayer;
 import io.riddles.lightriders.game.processor.LightridersProcessor;
+import io.riddles.lightriders.game.replay.LightridersReplay;
+import io.riddles.lightriders.game.replay.LightridersReplayEncoder;
 import io.riddles.lightriders.game.state.LightridersPlayerState;
 import io.riddles.lightriders.game.state.LightridersState;
+import io.riddles.lightriders.metrics.LightridersMetrics;
+import io.riddles.lightriders.server.LightridersSpectatorFeed;
 import io.riddles.javainterface.engine.AbstractEngine;
 import io.riddles.lightriders.game.LightridersSerializer;
 
+import org.json.JSONObject;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.awt.*;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
 import java.util.UUID;
 
 /**
@@ -54,7 +73,13 @@ import java.util.UUID;
  */
 public class LightridersEngine extends AbstractEngine<LightridersProcessor, LightridersPlayer, LightridersState> {
 
-    public static SecureRandom RANDOM;
+    public static final int DEFAULT_OFF_HEAP_BOARD_CELLS = 1 << 20;
+
+    private static final String METRICS_OBJECT_NAME = "io.riddles.lightriders:type=MatchMetrics";
+
+    private LightridersRandom random;
+    private LightridersMetrics metrics;
+    private LightridersSpectatorFeed spectatorFeed;
 
     public LightridersEngine(PlayerProvider<LightridersPlayer> playerProvider, IOHandler ioHandler) throws TerminalException {
         super(playerProvider, ioHandler);
@@ -68,13 +93,127 @@ public class LightridersEngine extends AbstractEngine<LightridersProcessor, Ligh
         config.put("fieldWidth", 16);
         config.put("fieldHeight", 16);
         config.put("seed", UUID.randomUUID().toString());
+        config.put("concurrentMoves", 0);
+        config.put("moveTimeout", -1);
+        config.put("fieldDeltas", 0);
+        config.put("offHeapBoardCells", DEFAULT_OFF_HEAP_BOARD_CELLS);
+        config.put("boardMapDirectory", "");
+        config.put("metrics", 0);
+        config.put("metricsJmx", 0);
+        config.put("spectatorPort", -1);
+        config.put("spectatorBuffer", 1024);
+        config.put("adjudicate", 0);
+        config.put("keyframeInterval", 0);
+        config.put("playedGameFile", "");
 
         return config;
     }
 
     @Override
     protected LightridersProcessor createProcessor() {
-        return new LightridersProcessor(this.playerProvider);
+        return new LightridersProcessor(this.playerProvider, null, getMetrics());
+    }
+
+    @Override
+    public LightridersState willRun() throws TerminalException {
+        LightridersMetrics metrics = getMetrics();
+        metrics.startMatch();
+
+        long start = System.nanoTime();
+        LightridersState initialState = super.willRun();
+        metrics.addSetupTime(System.nanoTime() - start);
+
+        if (configuration.getInt("metricsJmx") > 0) {
+            registerMetrics(metrics);
+        }
+
+        if (configuration.getInt("spectatorPort") >= 0) {
+            startSpectatorFeed(initialState);
+        }
+
+        return initialState;
+    }
+
+    @Override
+    public LightridersState run(LightridersState initialState) {
+        long start = System.nanoTime();
+        LightridersState finalState = super.run(initialState);
+        getMetrics().addRunTime(System.nanoTime() - start);
+
+        return finalState;
+    }
+
+    @Override
+    public void didRun(LightridersState initialState, LightridersState finalState) {
+        super.didRun(initialState, finalState);
+
+        if (configuration.getInt("metricsJmx") > 0) {
+            unregisterMetrics();
+        }
+
+        if (this.spectatorFeed != null) {
+            try {
+                this.spectatorFeed.close();
+            } catch (IOException ex) {
+                LOGGER.warning("Not able to close spectator feed: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return Metrics of the match run by this engine
+     */
+    public LightridersMetrics getMetrics() {
+        // Created on first use, the processor can be created before fields are initialized
+        if (this.metrics == null) {
+            this.metrics = new LightridersMetrics();
+        }
+
+        return this.metrics;
+    }
+
+    /**
+     * Streams the initial state and every state after it to spectators,
+     * spectators that connect later get the states they missed first.
+     */
+    private void startSpectatorFeed(LightridersState initialState) {
+        try {
+            this.spectatorFeed = new LightridersSpectatorFeed(
+                    configuration.getInt("spectatorPort"), configuration.getInt("spectatorBuffer"));
+        } catch (IOException ex) {
+            LOGGER.warning("Not able to start spectator feed: " + ex.getMessage());
+            return;
+        }
+
+        this.spectatorFeed.publish(initialState);
+        this.processor.addStateListener(this.spectatorFeed::publish);
+    }
+
+    private void registerMetrics(LightridersMetrics metrics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(METRICS_OBJECT_NAME);
+
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(metrics, name);
+        } catch (JMException ex) {
+            LOGGER.warning("Not able to register metrics in JMX: " + ex.getMessage());
+        }
+    }
+
+    private void unregisterMetrics() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(METRICS_OBJECT_NAME);
+
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException ex) {
+            LOGGER.warning("Not able to unregister metrics from JMX: " + ex.getMessage());
+        }
     }
 
     @Override
@@ -97,81 +236,288 @@ public class LightridersEngine extends AbstractEngine<LightridersProcessor, Ligh
         if (maxRounds > 0) {
             player.sendSetting("max_rounds", maxRounds);
         }
+
+        if (configuration.getInt("fieldDeltas") > 0) {
+            player.sendSetting("field_format", "delta");
+        }
     }
 
+    /**
+     * The framework takes the played game as one String. With playedGameFile
+     * set, the game is streamed into that file instead, so it is never held
+     * in memory as a whole, and only a reference to the file is returned.
+     */
     @Override
     protected String getPlayedGame(LightridersState initialState) {
+        String playedGameFile = configuration.getString("playedGameFile");
+
+        if (playedGameFile != null && !playedGameFile.isEmpty()) {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(playedGameFile), StandardCharsets.UTF_8))) {
+                writePlayedGame(initialState, writer);
+
+                JSONObject reference = new JSONObject();
+                reference.put("playedGameFile", new File(playedGameFile).getAbsolutePath());
+                return reference.toString();
+            } catch (IOException ex) {
+                LOGGER.warning("Not able to write played game to " + playedGameFile + ": " + ex.getMessage());
+            }
+        }
+
         LightridersSerializer serializer = new LightridersSerializer();
         return serializer.traverseToString(this.processor, initialState);
     }
 
+    /**
+     * Writes the played game to the writer without building it as a String first.
+     * @param initialState First state of the game
+     * @param writer Writer to write to
+     * @throws IOException When writing fails
+     */
+    public void writePlayedGame(LightridersState initialState, Writer writer) throws IOException {
+        LightridersSerializer serializer = new LightridersSerializer();
+        serializer.traverseToWriter(this.processor, initialState, writer);
+    }
+
+    /**
+     * Writes the played game in the compact binary replay format.
+     * @param initialState First state of the game
+     * @param outputStream Stream to write to
+     * @throws IOException When writing fails
+     */
+    public void writeBinaryReplay(LightridersState initialState, OutputStream outputStream) throws IOException {
+        LightridersReplay replay = LightridersReplay.fromStates(initialState,
+                configuration.getInt("maxRounds"), configuration.getString("seed"));
+        new LightridersReplayEncoder().encode(replay, outputStream);
+    }
+
 
     @Override
     protected LightridersState getInitialState() {
-        setRandomSeed();
+        String seed = configuration.getString("seed");
+        LOGGER.info("RANDOM SEED IS: " + seed);
+        this.random = createRandom(seed);
 
         int width = configuration.getInt("fieldWidth");
         int height = configuration.getInt("fieldHeight");
 
-        LightridersBoard board = new LightridersBoard(width, height);
+        LightridersBoard board = createBoard(width, height,
+                configuration.getInt("offHeapBoardCells"), configuration.getString("boardMapDirectory"));
+        LightridersState state = createInitialState(
+                board, this.playerProvider.getPlayers().size(), this.random);
+        int keyframeInterval = configuration.getInt("keyframeInterval");
+        if (keyframeInterval > 0) {
+            state.setKeyframeInterval(keyframeInterval);
+        }
+
+        ArrayList<Point> startCoordinates = new ArrayList<>();
+        for (LightridersPlayerState playerState : state.getPlayerStates()) {
+            startCoordinates.add(playerState.getCoordinate());
+        }
+        System.err.println(startCoordinates);
+
+        return state;
+    }
+
+    /**
+     * Creates the initial state of a game, without depending on any engine
+     * state, so multiple games can be created at the same time.
+     * @param width Field width
+     * @param height Field height
+     * @param playerCount Amount of players, with ids 0 to playerCount - 1
+     * @param random Random generator of this game
+     * @return Initial state
+     */
+    public static LightridersState createInitialState(int width, int height, int playerCount, Random random) {
+        LightridersBoard board = createBoard(width, height, DEFAULT_OFF_HEAP_BOARD_CELLS, "");
+
+        return createInitialState(board, playerCount, random);
+    }
+
+    /**
+     * Creates the initial state of a game on the given empty board.
+     * @param board Empty board of the game
+     * @param playerCount Amount of players, with ids 0 to playerCount - 1
+     * @param random Random generator of this game
+     * @return Initial state
+     */
+    public static LightridersState createInitialState(LightridersBoard board, int playerCount, Random random) {
+        int width = board.getWidth();
+        int height = board.getHeight();
 
         // Create initial player states
         ArrayList<LightridersPlayerState> playerStates = new ArrayList<>();
-        for (LightridersPlayer player : this.playerProvider.getPlayers()) {
-            LightridersPlayerState playerState = new LightridersPlayerState(player.getId());
-            playerStates.add(playerState);
+        for (int id = 0; id < playerCount; id++) {
+            playerStates.add(new LightridersPlayerState(id));
         }
 
         // Create initial state
         LightridersState state = new LightridersState(playerStates, board);
-        ArrayList<Point> startCoordinates = getStartCoordinates(width, height);
-
-        System.err.println(startCoordinates);
+        ArrayList<Point> startCoordinates = getStartCoordinates(width, height, playerCount, random);
 
         for (LightridersPlayerState playerState : state.getPlayerStates()) {
             Point startCoordinate = startCoordinates.get(playerState.getPlayerId());
 
             state.setPlayerCoordinate(playerState.getPlayerId(), startCoordinate);
-            playerState.setDirection(getStartDirection(startCoordinate, width));
+            playerState.setDirection(getStartDirection(startCoordinate, width, height, playerCount));
         }
 
         return state;
     }
 
+    /**
+     * Creates the board of a game. Fields with at least offHeapBoardCells
+     * cells are stored off-heap, in a memory-mapped file when a directory
+     * for it is given.
+     * @param width Field width
+     * @param height Field height
+     * @param offHeapBoardCells Minimum amount of cells to store off-heap, -1 to never do so
+     * @param mapDirectory Directory for the memory-mapped file, empty to use a direct buffer
+     * @return Empty board
+     */
+    public static LightridersBoard createBoard(int width, int height, int offHeapBoardCells, String mapDirectory) {
+        int size = width * height;
+
+        if (offHeapBoardCells < 0 || size < offHeapBoardCells) {
+            return new LightridersBoard(width, height);
+        }
+
+        if (mapDirectory != null && !mapDirectory.isEmpty()) {
+            try {
+                return new LightridersBoard(width, height,
+                        LightridersOffHeapCellStorage.map(size, new File(mapDirectory)));
+            } catch (IOException ex) {
+                LOGGER.warning("Not able to map board in " + mapDirectory + ", using direct buffer: "
+                        + ex.getMessage());
+            }
+        }
+
+        return new LightridersBoard(width, height, LightridersOffHeapCellStorage.allocate(size));
+    }
+
+    /**
+     * Creates the random generator for a game, seeded with the given seed.
+     * The same seed gives the same game on every engine version.
+     * @param seed Seed of the game
+     * @return Random generator
+     */
+    public static LightridersRandom createRandom(String seed) {
+        return new LightridersRandom(seed);
+    }
+
     /**
      * Gets a random starting point for the first player, then gets rotational
-     * symmetric points for the other players. 2 or 4 players possible.
+     * symmetric points for the other players. For 2 or 4 players the points
+     * are mirrored, other amounts are spread evenly over a circle.
      * @param width Field width
      * @param height Field height
+     * @param playerCount Amount of players
+     * @param random Random generator of the game
      * @return Starting coordinates for each player
      */
-    private ArrayList<Point> getStartCoordinates(int width, int height) {
+    private static ArrayList<Point> getStartCoordinates(int width, int height, int playerCount, Random random) {
         ArrayList<Point> startCoordinates = new ArrayList<>();
 
-        int initialX = RANDOM.nextInt((width / 2) - 2) + 1;
+        int initialX;
         int initialY;
 
-        switch (this.playerProvider.getPlayers().size()) {
+        switch (playerCount) {
             case 2:
-                initialY = RANDOM.nextInt(height - 2) + 1;
+                checkMirroredFieldSize(width, height, width / 2 - 2, height - 2, playerCount);
+                initialX = random.nextInt((width / 2) - 2) + 1;
+                initialY = random.nextInt(height - 2) + 1;
                 startCoordinates.add(new Point(initialX, initialY));
                 startCoordinates.add(new Point((width - 1) - initialX, initialY));
                 break;
             case 4:
-                initialY = RANDOM.nextInt((height / 2) - 2) + 1;
+                checkMirroredFieldSize(width, height, width / 2 - 2, height / 2 - 2, playerCount);
+                initialX = random.nextInt((width / 2) - 2) + 1;
+                initialY = random.nextInt((height / 2) - 2) + 1;
                 startCoordinates.add(new Point(initialX, initialY));
                 startCoordinates.add(new Point((width - 1) - initialX, initialY));
                 startCoordinates.add(new Point((width - 1) - initialX, (height - 1) - initialY));
                 startCoordinates.add(new Point(initialX, (height - 1) - initialY));
                 break;
             default:
-                throw new RuntimeException("Can only run this game with 2 or 4 players");
+                return getCircleStartCoordinates(width, height, playerCount, random);
         }
 
         return startCoordinates;
     }
 
-    private MoveType getStartDirection(Point coordinate, int boardWidth) {
+    private static void checkMirroredFieldSize(int width, int height, int xRange, int yRange, int playerCount) {
+        if (xRange <= 0 || yRange <= 0) {
+            throw new RuntimeException(String.format(
+                    "Field of %dx%d is too small for %d players", width, height, playerCount));
+        }
+    }
+
+    /**
+     * Spreads the players evenly over a circle around the center of the
+     * field, starting at a random angle, so every player has the same
+     * distance to the center and to its neighbours. Uses StrictMath, so the
+     * positions for a seed are the same on every JVM.
+     * @param width Field width
+     * @param height Field height
+     * @param playerCount Amount of players
+     * @param random Random generator of the game
+     * @return Starting coordinates for each player
+     */
+    private static strictfp ArrayList<Point> getCircleStartCoordinates(int width, int height, int playerCount, Random random) {
+        if (playerCount < 2 || playerCount > LightridersBoard.MAX_PLAYERS) {
+            throw new RuntimeException("Can only run this game with 2 to "
+                    + LightridersBoard.MAX_PLAYERS + " players");
+        }
+
+        double centerX = (width - 1) / 2.0;
+        double centerY = (height - 1) / 2.0;
+        double radiusX = (width - 3) * 0.4;
+        double radiusY = (height - 3) * 0.4;
+        double offset = random.nextDouble() * 2 * Math.PI;
+
+        ArrayList<Point> startCoordinates = new ArrayList<>();
+        HashSet<Point> taken = new HashSet<>();
+
+        for (int i = 0; i < playerCount; i++) {
+            double angle = offset + (2 * Math.PI * i) / playerCount;
+            Point coordinate = new Point(
+                    (int) Math.round(centerX + radiusX * StrictMath.cos(angle)),
+                    (int) Math.round(centerY + radiusY * StrictMath.sin(angle)));
+
+            if (!taken.add(coordinate)) {
+                throw new RuntimeException(String.format(
+                        "Field of %dx%d is too small for %d players", width, height, playerCount));
+            }
+
+            startCoordinates.add(coordinate);
+        }
+
+        // Players need an empty cell in front of them
+        for (Point coordinate : startCoordinates) {
+            Point direction = getCenterDirection(coordinate, width, height).getDirection();
+
+            if (taken.contains(new Point(coordinate.x + direction.x, coordinate.y + direction.y))) {
+                throw new RuntimeException(String.format(
+                        "Field of %dx%d is too small for %d players", width, height, playerCount));
+            }
+        }
+
+        return startCoordinates;
+    }
+
+    /**
+     * @param coordinate Starting point of the player
+     * @param boardWidth Field width
+     * @param boardHeight Field height
+     * @param playerCount Amount of players
+     * @return The direction a player starts in. For 2 or 4 players that is
+     * towards the other half of the field, otherwise towards the center.
+     */
+    public static MoveType getStartDirection(Point coordinate, int boardWidth, int boardHeight, int playerCount) {
+        if (playerCount != 2 && playerCount != 4) {
+            return getCenterDirection(coordinate, boardWidth, boardHeight);
+        }
+
         if (coordinate.x < boardWidth / 2) {
             return MoveType.RIGHT;
         }
@@ -179,15 +525,17 @@ public class LightridersEngine extends AbstractEngine<LightridersProcessor, Ligh
         return MoveType.LEFT;
     }
 
-    private void setRandomSeed() {
-        try {
-            RANDOM = SecureRandom.getInstance("SHA1PRNG");
-        } catch (NoSuchAlgorithmException ex) {
-            LOGGER.severe("Not able to use SHA1PRNG, using default algorithm");
-            RANDOM = new SecureRandom();
+    /**
+     * @return The direction that points most towards the center of the field
+     */
+    private static MoveType getCenterDirection(Point coordinate, int boardWidth, int boardHeight) {
+        double dx = (boardWidth - 1) / 2.0 - coordinate.x;
+        double dy = (boardHeight - 1) / 2.0 - coordinate.y;
+
+        if (Math.abs(dx) >= Math.abs(dy)) {
+            return dx >= 0 ? MoveType.RIGHT : MoveType.LEFT;
         }
-        String seed = configuration.getString("seed");
-        LOGGER.info("RANDOM SEED IS: " + seed);
-        RANDOM.setSeed(seed.getBytes());
+
+        return dy >= 0 ? MoveType.DOWN : MoveType.UP;
     }
 }
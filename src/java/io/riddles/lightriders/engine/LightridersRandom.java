@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.engine;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * io.riddles.lightriders.engine.LightridersRandom
+ *
+ * Fast deterministic random generator of one game, using the SplitMix64
+ * algorithm. The sequence only depends on the seed and doesn't change
+ * between Java or engine versions:
+ *
+ * - A seed string is hashed with 64 bit FNV-1a over its UTF-8 bytes,
+ *   followed by the SplitMix64 finalizer.
+ * - Every nextLong() adds 0x9E3779B97F4A7C15 to the state and returns the
+ *   SplitMix64 finalizer of the new state.
+ * - next(bits) takes the highest bits of nextLong(), so all methods of
+ *   Random that are specified in terms of next(bits), like nextInt(bound),
+ *   give the same results everywhere.
+ *
+ * Child generators for batch runs are derived from the seed and an index,
+ * so they don't depend on how much of the parent sequence was used.
+ * Instances are not thread-safe, every game should have its own.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private long seed;
+    private long state;
+
+    public LightridersRandom(long seed) {
+        super(seed);
+    }
+
+    public LightridersRandom(String seed) {
+        this(hashSeed(seed));
+    }
+
+    /**
+     * Hashes a configured seed string to the 64 bit seed of a generator.
+     * @param seed Seed string
+     * @return 64 bit seed
+     */
+    public static long hashSeed(String seed) {
+        long hash = FNV_OFFSET_BASIS;
+
+        for (byte b : seed.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= FNV_PRIME;
+        }
+
+        return mix64(hash);
+    }
+
+    /**
+     * Derives the seed string of a child game, for example of one match in
+     * a batch, from the seed of the batch.
+     * @param seed Seed of the batch
+     * @param index Index of the child
+     * @return Seed of the child
+     */
+    public static String deriveSeed(String seed, long index) {
+        return deriveSeed(hashSeed(seed), index);
+    }
+
+    private static String deriveSeed(long seed, long index) {
+        return String.format("%016x", mix64(seed ^ mix64((index + 1) * GOLDEN_GAMMA)));
+    }
+
+    /**
+     * Creates the generator of a child, independent of this generator's
+     * position in its sequence. The child is seeded with the derived seed
+     * string, so it can be played again on its own with that seed.
+     * @param index Index of the child
+     * @return Generator of the child
+     */
+    public LightridersRandom derive(long index) {
+        return new LightridersRandom(deriveSeed(this.seed, index));
+    }
+
+    public long getSeed() {
+        return this.seed;
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        // Called from the constructor of Random, before any fields are initialized
+        super.setSeed(seed);
+        this.seed = seed;
+        this.state = seed;
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public long nextLong() {
+        this.state += GOLDEN_GAMMA;
+        return mix64(this.state);
+    }
+
+    @Override
+    public int nextInt() {
+        return (int) (nextLong() >>> 32);
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.env;
+
+import io.riddles.lightriders.engine.LightridersEngine;
+import io.riddles.lightriders.engine.LightridersRandom;
+import io.riddles.lightriders.game.move.MoveType;
+import io.riddles.lightriders.game.state.LightridersPlayerState;
+import io.riddles.lightriders.game.state.LightridersState;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * io.riddles.lightriders.env.LightridersVectorEnv
+ *
+ * Plays many games side by side for reinforcement learning, with the
+ * same rules as LightridersLogic. All games are stored in flat arrays,
+ * with game e at offset e * width * height in the cells and at offset
+ * e * playerCount in the player arrays:
+ *
+ * - cells: EMPTY, BLOCKED, or PLAYER + id for the position of a player
+ * - x, y, directions (MoveType ordinal) and alive (0 or 1) per player
+ * - rounds, dones (0 or 1) and winners (-1 for none or a draw) per game
+ * - rewards per player: after the last round of a game 1 for the winner
+ *   and -1 for the other players, 0 for everyone after a draw and 0 in
+ *   all other rounds
+ *
+ * The arrays are updated in place and can be read directly as
+ * observations. Actions are MoveType ordinals, one per player; a PASS,
+ * an invalid code or moving back keeps the player's current direction.
+ * With auto reset on (the default), a finished game is reset right after
+ * the step that finished it, so its rewards, done and winner are from the
+ * finished game while the other arrays already show the new one.
+ * Call reset() before the first step.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersVectorEnv {
+
+    public static final byte EMPTY = 0;
+    public static final byte BLOCKED = 1;
+    public static final byte PLAYER = 2;
+    public static final int MAX_PLAYERS = Byte.MAX_VALUE - PLAYER + 1;
+
+    // Games per task when stepping in parallel
+    private static final int CHUNK_SIZE = 64;
+
+    private static final int PASS = MoveType.PASS.ordinal();
+    private static final int[] DELTA_X = new int[MoveType.values().length];
+    private static final int[] DELTA_Y = new int[MoveType.values().length];
+    private static final int[] OPPOSITE = new int[MoveType.values().length];
+
+    static {
+        for (MoveType moveType : MoveType.values()) {
+            DELTA_X[moveType.ordinal()] = moveType.getDeltaX();
+            DELTA_Y[moveType.ordinal()] = moveType.getDeltaY();
+            OPPOSITE[moveType.ordinal()] = moveType.getOpposite().ordinal();
+        }
+    }
+
+    private int envCount;
+    private int playerCount;
+    private int width;
+    private int height;
+    private int cellCount;
+    private int maxRounds;
+    private boolean autoReset;
+    private boolean parallel;
+
+    private LightridersRandom[] randoms;
+    private byte[] cells;
+    private int[] x;
+    private int[] y;
+    private byte[] directions;
+    private byte[] alive;
+    private int[] rounds;
+    private byte[] dones;
+    private int[] winners;
+    private float[] rewards;
+    private int[] actions;
+
+    /**
+     * @param envCount Amount of games played side by side
+     * @param playerCount Amount of players per game
+     * @param width Field width
+     * @param height Field height
+     * @param maxRounds Maximum amount of rounds per game, -1 for no maximum
+     * @param seed Seed of the environment, game e uses the seed
+     *             LightridersRandom.deriveSeed(seed, e)
+     */
+    public LightridersVectorEnv(int envCount, int playerCount, int width, int height, int maxRounds, String seed) {
+        if (playerCount < 2 || playerCount > MAX_PLAYERS) {
+            throw new IllegalArgumentException("Can only play with 2 to " + MAX_PLAYERS + " players");
+        }
+
+        this.envCount = envCount;
+        this.playerCount = playerCount;
+        this.width = width;
+        this.height = height;
+        this.cellCount = width * height;
+        this.maxRounds = maxRounds;
+        this.autoReset = true;
+        this.parallel = false;
+
+        this.randoms = new LightridersRandom[envCount];
+        for (int env = 0; env < envCount; env++) {
+            this.randoms[env] = new LightridersRandom(LightridersRandom.deriveSeed(seed, env));
+        }
+
+        this.cells = new byte[envCount * this.cellCount];
+        this.x = new int[envCount * playerCount];
+        this.y = new int[envCount * playerCount];
+        this.directions = new byte[envCount * playerCount];
+        this.alive = new byte[envCount * playerCount];
+        this.rounds = new int[envCount];
+        this.dones = new byte[envCount];
+        this.winners = new int[envCount];
+        this.rewards = new float[envCount * playerCount];
+    }
+
+    /**
+     * Starts a new game in every environment.
+     */
+    public void reset() {
+        for (int env = 0; env < this.envCount; env++) {
+            reset(env);
+        }
+    }
+
+    /**
+     * Starts a new game in one environment, with the start positions and
+     * directions of LightridersEngine.
+     * @param env Environment to reset
+     */
+    public void reset(int env) {
+        LightridersState state = LightridersEngine.createInitialState(
+                this.width, this.height, this.playerCount, this.randoms[env]);
+        int cellOffset = env * this.cellCount;
+        int playerOffset = env * this.playerCount;
+
+        Arrays.fill(this.cells, cellOffset, cellOffset + this.cellCount, EMPTY);
+
+        for (LightridersPlayerState playerState : state.getPlayerStates()) {
+            int id = playerState.getPlayerId();
+            int player = playerOffset + id;
+
+            this.x[player] = playerState.getX();
+            this.y[player] = playerState.getY();
+            this.directions[player] = (byte) playerState.getDirection().ordinal();
+            this.alive[player] = 1;
+            this.cells[cellOffset + playerState.getY() * this.width + playerState.getX()] = (byte) (PLAYER + id);
+        }
+
+        this.rounds[env] = 0;
+        this.dones[env] = 0;
+        this.winners[env] = -1;
+    }
+
+    /**
+     * Plays one round in every environment that hasn't finished.
+     * @param actions MoveType ordinal per player, at env * playerCount + id
+     */
+    public void step(int[] actions) {
+        if (actions.length != this.envCount * this.playerCount) {
+            throw new IllegalArgumentException("Expected " + this.envCount * this.playerCount + " actions");
+        }
+
+        this.actions = actions;
+
+        if (this.parallel && this.envCount > CHUNK_SIZE) {
+            int chunks = (this.envCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            IntStream.range(0, chunks).parallel().forEach(chunk ->
+                    stepRange(chunk * CHUNK_SIZE, Math.min((chunk + 1) * CHUNK_SIZE, this.envCount)));
+        } else {
+            stepRange(0, this.envCount);
+        }
+
+        this.actions = null;
+    }
+
+    /**
+     * @param autoReset True to reset finished games in the step that finished them
+     */
+    public void setAutoReset(boolean autoReset) {
+        if (autoReset && !this.autoReset) {
+            for (int env = 0; env < this.envCount; env++) {
+                if (this.dones[env] != 0) {
+                    reset(env);
+                }
+            }
+        }
+
+        this.autoReset = autoReset;
+    }
+
+    /**
+     * @param parallel True to step the environments on all cores
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public int getEnvCount() {
+        return this.envCount;
+    }
+
+    public int getPlayerCount() {
+        return this.playerCount;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    public byte[] getCells() {
+        return this.cells;
+    }
+
+    public int[] getX() {
+        return this.x;
+    }
+
+    public int[] getY() {
+        return this.y;
+    }
+
+    public byte[] getDirections() {
+        return this.directions;
+    }
+
+    public byte[] getAlive() {
+        return this.alive;
+    }
+
+    public int[] getRounds() {
+        return this.rounds;
+    }
+
+    public byte[] getDones() {
+        return this.dones;
+    }
+
+    public int[] getWinners() {
+        return this.winners;
+    }
+
+    public float[] getRewards() {
+        return this.rewards;
+    }
+
+    private void stepRange(int fromEnv, int toEnv) {
+        for (int env = fromEnv; env < toEnv; env++) {
+            int playerOffset = env * this.playerCount;
+            Arrays.fill(this.rewards, playerOffset, playerOffset + this.playerCount, 0f);
+
+            if (this.dones[env] != 0) {
+                // Without auto reset a finished game waits for reset(env)
+                if (!this.autoReset) continue;
+
+                // Already reset in the step that finished it
+                this.dones[env] = 0;
+            }
+
+            stepEnv(env);
+
+            if (this.dones[env] != 0 && this.autoReset) {
+                int winner = this.winners[env];
+                reset(env);
+                this.dones[env] = 1;
+                this.winners[env] = winner;
+            }
+        }
+    }
+
+    /**
+     * Same rules as LightridersLogic.transform: every alive player leaves a
+     * wall and moves, then players on the same cell, outside the field or
+     * on a non-empty cell crash.
+     */
+    private void stepEnv(int env) {
+        int cellOffset = env * this.cellCount;
+        int playerOffset = env * this.playerCount;
+        int playerEnd = playerOffset + this.playerCount;
+        int round = ++this.rounds[env];
+
+        for (int player = playerOffset; player < playerEnd; player++) {
+            if (this.alive[player] == 0) continue;
+
+            this.cells[cellOffset + this.y[player] * this.width + this.x[player]] = BLOCKED;
+
+            int action = this.actions[player];
+            int direction = this.directions[player];
+            if (action >= 0 && action < PASS && (round <= 1 || OPPOSITE[action] != direction)) {
+                direction = action;
+                this.directions[player] = (byte) direction;
+            }
+
+            this.x[player] += DELTA_X[direction];
+            this.y[player] += DELTA_Y[direction];
+        }
+
+        int aliveCount = 0;
+        int lastAlive = -1;
+
+        for (int player = playerOffset; player < playerEnd; player++) {
+            if (this.alive[player] == 0) continue;
+
+            int px = this.x[player];
+            int py = this.y[player];
+
+            // Crashed players still count, like in the coordinate index of LightridersLogic
+            int count = 0;
+            for (int other = playerOffset; other < playerEnd; other++) {
+                if (this.x[other] == px && this.y[other] == py) {
+                    count++;
+                }
+            }
+
+            boolean inside = px >= 0 && py >= 0 && px < this.width && py < this.height;
+            int cell = cellOffset + py * this.width + px;
+
+            if (count > 1 || !inside || this.cells[cell] != EMPTY) {
+                this.alive[player] = 0;
+
+                if (count > 1 && inside) {
+                    this.cells[cell] = BLOCKED;
+                }
+            } else {
+                this.cells[cell] = (byte) (PLAYER + player - playerOffset);
+                aliveCount++;
+                lastAlive = player - playerOffset;
+            }
+        }
+
+        if (aliveCount <= 1 || (this.maxRounds > 0 && round >= this.maxRounds)) {
+            this.dones[env] = 1;
+            this.winners[env] = aliveCount == 1 ? lastAlive : -1;
+
+            if (aliveCount == 1) {
+                for (int player = playerOffset; player < playerEnd; player++) {
+                    this.rewards[player] = player - playerOffset == lastAlive ? 1f : -1f;
+                }
+            }
+        }
+    }
+}
@@ -20,18 +20,32 @@
 package io.riddles.lightriders.game;
 
 import io.riddles.javainterface.game.player.AbstractPlayer;
+import io.riddles.lightriders.game.board.LightridersBoard;
+import io.riddles.lightriders.game.board.LightridersBoardDelta;
 import io.riddles.lightriders.game.processor.LightridersProcessor;
 import io.riddles.lightriders.game.state.LightridersState;
+import io.riddles.lightriders.metrics.LightridersMetrics;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import io.riddles.lightriders.game.state.LightridersStateSerializer;
 import io.riddles.javainterface.game.AbstractGameSerializer;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
 /**
  * io.riddles.lightriders.game.LightridersSerializer
  *
- * [description]
+ * Serializes a played game. The states are written one by one while
+ * walking the state chain, so the whole game never has to be kept
+ * in memory as JSON. When keyframeInterval is set, every state has the
+ * cells changed in its round and every K rounds a keyframe with all
+ * non-empty cells, in the format of LightridersBoard.deltaToString(), so
+ * any round can be rebuilt with LightridersBoardSeeker. The metrics of the match are written after the
+ * states, so they include the time spent serializing them.
  *
  * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
  */
@@ -40,27 +54,94 @@ public class LightridersSerializer extends
 
     @Override
     public String traverseToString(LightridersProcessor processor, LightridersState initialState) {
+        StringWriter writer = new StringWriter();
+
+        try {
+            traverseToWriter(processor, initialState, writer);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return writer.toString();
+    }
+
+    /**
+     * Writes the played game to the writer in the same format as traverseToString().
+     * @param processor Processor of the played game
+     * @param initialState First state of the game
+     * @param writer Writer to write to, is not closed afterwards
+     * @throws IOException When writing fails
+     */
+    public void traverseToWriter(LightridersProcessor processor, LightridersState initialState,
+                                 Writer writer) throws IOException {
+        long start = System.nanoTime();
         LightridersStateSerializer stateSerializer = new LightridersStateSerializer();
         JSONObject game = new JSONObject();
 
         game = addDefaultJSON(initialState, game, processor);
 
+        LightridersBoard initialBoard = initialState.getBoard();
+        int width = initialBoard.getWidth();
         JSONObject field = new JSONObject();
-        field.put("width", initialState.getBoard().getWidth());
-        field.put("height", initialState.getBoard().getHeight());
+        field.put("width", width);
+        field.put("height", initialBoard.getHeight());
         game.getJSONObject("settings").put("field", field);
 
-        JSONArray states = new JSONArray();
-        states.put(stateSerializer.traverseToJson(initialState));
+        LightridersState adjudicatedState = processor.getAdjudicatedState();
+        if (adjudicatedState != null) {
+            JSONObject adjudication = new JSONObject();
+            adjudication.put("round", adjudicatedState.getRoundNumber());
+            adjudication.put("regionSizes", new JSONArray(processor.getAdjudicatedRegionSizes()));
+            game.put("adjudication", adjudication);
+        }
+
+        // Write the game without its closing brace, then add the states
+        String header = game.toString();
+        writer.write(header, 0, header.length() - 1);
+        writer.write(game.length() > 0 ? ",\"states\":[" : "\"states\":[");
 
+        boolean seeking = processor.isSeekingEnabled();
         LightridersState state = initialState;
+        visitState(stateSerializer, state, width, seeking).write(writer);
+
         while (state.hasNextState()) {
             state = (LightridersState) state.getNextState();
-            states.put(stateSerializer.traverseToJson(state));
+            writer.write(',');
+            visitState(stateSerializer, state, width, seeking).write(writer);
         }
 
-        game.put("states", states);
+        writer.write(']');
+
+        if (processor.isMetricsEnabled()) {
+            LightridersMetrics metrics = processor.getMetrics();
+            metrics.addSerializationTime(System.nanoTime() - start);
+
+            writer.write(",\"metrics\":");
+            metrics.toJson().write(writer);
+        }
+
+        writer.write('}');
+        writer.flush();
+    }
+
+    private JSONObject visitState(LightridersStateSerializer stateSerializer, LightridersState state,
+                                  int width, boolean seeking) {
+        JSONObject stateJson = stateSerializer.traverseToJson(state);
+
+        if (!seeking) {
+            return stateJson;
+        }
+
+        LightridersBoardDelta changes = state.getRoundChanges();
+        if (changes != null) {
+            stateJson.put("changes", LightridersBoard.deltaToString(changes, width));
+        }
+
+        LightridersBoardDelta keyframe = state.getKeyframe();
+        if (keyframe != null) {
+            stateJson.put("keyframe", LightridersBoard.deltaToString(keyframe, width));
+        }
 
-        return game.toString();
+        return stateJson;
     }
 }
@@ -26,36 +26,118 @@ import java.awt.*;
 /**
  * io.riddles.lightriders.game.board.LightridersBoard
  *
- * [description]
+ * Stores the field in a LightridersCellStorage instead of a String per cell,
+ * on the heap by default or off-heap for very large fields. The String
+ * based Board methods are still supported and toString() keeps the same
+ * comma separated format that is sent to the bots. The encoded field is
+ * cached until the board changes, so it is only built once per round no
+ * matter how many players it is sent to.
  *
  * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
  */
 public class LightridersBoard extends Board<String> {
 
-    private final String EMPTY = ".";
-    private final String BLOCKED = "x";
+    public static final int MAX_PLAYERS = 256;
+
+    private static final String EMPTY = ".";
+    private static final String BLOCKED = "x";
+    private static final String[] PLAYER_FIELDS = new String[MAX_PLAYERS];
+
+    static {
+        for (int i = 0; i < MAX_PLAYERS; i++) {
+            PLAYER_FIELDS[i] = String.valueOf(i);
+        }
+    }
+
+    private LightridersCellStorage cells;
+    private LightridersBoardDelta changes;
+    private LightridersBoardDelta recordingBuffer;
+    private LightridersBoardDelta undoLog;
+    private String encoded;
+    private boolean readOnly;
 
     public LightridersBoard(int width, int height) {
+        this(width, height, new LightridersHeapCellStorage(width * height));
+    }
+
+    public LightridersBoard(int width, int height, LightridersCellStorage cells) {
         super(width, height);
-        this.fields = new String[this.width][this.height];
 
-        clear();
+        if (cells.size() != width * height) {
+            throw new IllegalArgumentException("Storage has " + cells.size()
+                    + " cells, field has " + width * height);
+        }
+
+        this.cells = cells;
     }
 
+    /**
+     * Copies the board, the copy uses the same kind of storage and can
+     * be changed, also when the board itself is read-only.
+     * @param board Board to copy
+     */
     public LightridersBoard(LightridersBoard board) {
         super(board.getWidth(), board.getHeight());
-        this.fields = new String[this.width][this.height];
 
-        this.setFieldsFromString(board.toString());
+        this.cells = board.cells.copy();
+        this.encoded = board.encoded;
+    }
+
+    /**
+     * @return A new board of the same size and kind of storage with only empty cells
+     */
+    public LightridersBoard createEmpty() {
+        return new LightridersBoard(this.width, this.height, this.cells.createEmpty());
+    }
+
+    /**
+     * Stores only the cells that are not empty, which is much smaller
+     * than a copy for mostly empty fields.
+     * @return The cells of this board as changes on an empty board
+     */
+    public LightridersBoardDelta snapshot() {
+        int size = this.width * this.height;
+        LightridersBoardDelta snapshot = new LightridersBoardDelta();
+
+        for (int index = 0; index < size; index++) {
+            int value = this.cells.get(index);
+
+            if (value != LightridersBoardDelta.EMPTY) {
+                snapshot.add(index, value);
+            }
+        }
+
+        return snapshot.trim();
+    }
+
+    /**
+     * Makes every change to this board throw, for boards that are shared
+     * copies of an earlier round.
+     * @return This board
+     */
+    public LightridersBoard setReadOnly() {
+        this.readOnly = true;
+        return this;
+    }
+
+    public boolean isReadOnly() {
+        return this.readOnly;
     }
 
     @Override
     public void clear() {
-        for (int y = 0; y < this.height; y++) {
-            for (int x = 0; x < this.width; x++) {
-                this.fields[x][y] = EMPTY;
+        checkWritable();
+        if (this.changes != null) {
+            int size = this.width * this.height;
+            for (int index = 0; index < size; index++) {
+                if (this.cells.get(index) != LightridersBoardDelta.EMPTY) {
+                    this.changes.add(index, LightridersBoardDelta.EMPTY);
+                }
             }
         }
+
+        this.encoded = null;
+        this.cells.clear();
     }
 
     @Override
@@ -64,29 +146,90 @@ public class LightridersBoard extends Board<String> {
     }
 
     @Override
-    public void dump() {
-        int maxLength = 0;
+    public String getFieldAt(Point point) {
+        return getField(index(point.x, point.y));
+    }
+
+    @Override
+    public void setFieldAt(Point point, String value) {
+        int index = index(point.x, point.y);
+
+        if (EMPTY.equals(value)) {
+            clearIndex(index);
+        } else if (BLOCKED.equals(value)) {
+            blockIndex(index);
+        } else {
+            setPlayerIndex(index, Integer.parseInt(value));
+        }
+    }
+
+    @Override
+    public String toString() {
+        String encoded = this.encoded;
 
-        int y;
-        for(y = 0; y < this.height; ++y) {
-            for(int x = 0; x < this.width; ++x) {
-                String cellString = this.fields[x][y] + "";
-                int length = cellString.length();
-                if(length > maxLength) {
-                    maxLength = length;
+        if (encoded == null) {
+            encoded = encode();
+            this.encoded = encoded;
+        }
+
+        return encoded;
+    }
+
+    /**
+     * Parses a field in the same format as toString(), without
+     * splitting the input into a String per cell.
+     * @param input Comma separated cells, row by row
+     */
+    @Override
+    public void setFieldsFromString(String input) {
+        clear();
+
+        int size = this.width * this.height;
+        int length = input.length();
+        int index = 0;
+        int position = 0;
+
+        while (index < size && position < length) {
+            char c = input.charAt(position);
+
+            if (c == '.') {
+                position++;
+            } else if (c == 'x') {
+                blockIndex(index);
+                position++;
+            } else {
+                int playerId = 0;
+                while (position < length && input.charAt(position) != ',') {
+                    playerId = playerId * 10 + (input.charAt(position) - '0');
+                    position++;
                 }
+                setPlayerIndex(index, playerId);
             }
+
+            position++; // skip the separator
+            index++;
         }
+    }
 
-        for(y = 0; y < this.height; ++y) {
-            String line = "";
+    @Override
+    public void dump() {
+        int size = this.width * this.height;
+        int maxLength = 0;
+
+        for (int index = 0; index < size; index++) {
+            maxLength = Math.max(maxLength, getField(index).length());
+        }
+
+        StringBuilder line = new StringBuilder();
+        for (int y = 0; y < this.height; y++) {
+            line.setLength(0);
 
-            for(int x = 0; x < this.width; ++x) {
-                String cell = this.fields[x][y] + "";
-                line = line + cell;
+            for (int x = 0; x < this.width; x++) {
+                String cell = getField(index(x, y));
+                line.append(cell);
 
-                for(int i = 0; i <= maxLength - cell.length(); ++i) {
-                    line = line + " ";
+                for (int i = 0; i <= maxLength - cell.length(); i++) {
+                    line.append(' ');
                 }
             }
 
@@ -96,15 +239,278 @@ public class LightridersBoard extends Board<String> {
         System.err.println();
     }
 
-    public Boolean isEmpty(Point point) {
-        return !isOutsideBoard(point) && getFieldAt(point).equals(EMPTY);
+    public boolean isEmpty(Point point) {
+        return isEmpty(point.x, point.y);
+    }
+
+    public boolean isEmpty(int x, int y) {
+        return isInsideBoard(x, y) && this.cells.get(index(x, y)) == LightridersBoardDelta.EMPTY;
     }
 
     public void setBlocked(Point point) {
-        setFieldAt(point, BLOCKED);
+        setBlocked(point.x, point.y);
+    }
+
+    public void setBlocked(int x, int y) {
+        blockIndex(index(x, y));
+    }
+
+    public void setPlayerAt(Point point, int playerId) {
+        setPlayerAt(point.x, point.y, playerId);
+    }
+
+    public void setPlayerAt(int x, int y, int playerId) {
+        setPlayerIndex(index(x, y), playerId);
+    }
+
+    /**
+     * Starts recording every cell that is changed on this board,
+     * until stopRecording() is called. The same buffer is used for every
+     * recording, so the returned changes are only valid until the next one.
+     */
+    public void startRecording() {
+        if (this.recordingBuffer == null) {
+            this.recordingBuffer = new LightridersBoardDelta();
+        }
+
+        this.recordingBuffer.clear();
+        this.changes = this.recordingBuffer;
+    }
+
+    /**
+     * @return The cells changed since startRecording(), or null if not recording
+     */
+    public LightridersBoardDelta stopRecording() {
+        LightridersBoardDelta changes = this.changes;
+        this.changes = null;
+
+        return changes;
+    }
+
+    /**
+     * @return The cells changed since startRecording(), or null if not recording
+     */
+    public LightridersBoardDelta getChanges() {
+        return this.changes;
+    }
+
+    /**
+     * Stores the previous value of every cell that is changed in the given
+     * log, until stopUndoLog() is called, so the changes can be undone.
+     * @param undoLog Log to add the previous values to
+     */
+    public void startUndoLog(LightridersBoardDelta undoLog) {
+        this.undoLog = undoLog;
+    }
+
+    public void stopUndoLog() {
+        this.undoLog = null;
+    }
+
+    /**
+     * Sets the cells in an undo log back to their previous values.
+     * @param undoLog Log filled between startUndoLog() and stopUndoLog()
+     */
+    public void undo(LightridersBoardDelta undoLog) {
+        for (int i = undoLog.size() - 1; i >= 0; i--) {
+            int index = undoLog.getIndex(i);
+            int value = undoLog.getValue(i);
+
+            if (value == LightridersBoardDelta.EMPTY) {
+                clearIndex(index);
+            } else if (value == LightridersBoardDelta.BLOCKED) {
+                blockIndex(index);
+            } else {
+                setPlayerIndex(index, value);
+            }
+        }
+    }
+
+    /**
+     * Encodes the given changes as "x,y,value" per cell, separated by ";",
+     * using the same cell values as toString().
+     * @param delta Changes on this board
+     * @return Encoded changes
+     */
+    public String deltaToString(LightridersBoardDelta delta) {
+        return deltaToString(delta, this.width);
+    }
+
+    /**
+     * Encodes changes like deltaToString(), without needing the board.
+     * @param delta Changes on a board
+     * @param width Width of the board
+     * @return Encoded changes
+     */
+    public static String deltaToString(LightridersBoardDelta delta, int width) {
+        StringBuilder builder = new StringBuilder(delta.size() * 8);
+
+        for (int i = 0; i < delta.size(); i++) {
+            int index = delta.getIndex(i);
+            int value = delta.getValue(i);
+
+            if (i > 0) {
+                builder.append(';');
+            }
+            builder.append(index % width).append(',').append(index / width).append(',');
+
+            if (value == LightridersBoardDelta.EMPTY) {
+                builder.append(EMPTY);
+            } else if (value == LightridersBoardDelta.BLOCKED) {
+                builder.append(BLOCKED);
+            } else {
+                builder.append(value);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Parses changes in the same format as deltaToString().
+     * @param input Encoded changes
+     * @return Changes on this board
+     */
+    public LightridersBoardDelta deltaFromString(String input) {
+        LightridersBoardDelta delta = new LightridersBoardDelta();
+        int length = input.length();
+        int position = 0;
+
+        while (position < length) {
+            int x = 0;
+            while (input.charAt(position) != ',') {
+                x = x * 10 + (input.charAt(position++) - '0');
+            }
+            position++;
+
+            int y = 0;
+            while (input.charAt(position) != ',') {
+                y = y * 10 + (input.charAt(position++) - '0');
+            }
+            position++;
+
+            int value;
+            char c = input.charAt(position);
+            if (c == '.') {
+                value = LightridersBoardDelta.EMPTY;
+                position++;
+            } else if (c == 'x') {
+                value = LightridersBoardDelta.BLOCKED;
+                position++;
+            } else {
+                value = 0;
+                while (position < length && input.charAt(position) != ';') {
+                    value = value * 10 + (input.charAt(position++) - '0');
+                }
+            }
+            position++; // skip the separator
+
+            delta.add(y * this.width + x, value);
+        }
+
+        return delta;
+    }
+
+    public void applyDelta(LightridersBoardDelta delta) {
+        for (int i = 0; i < delta.size(); i++) {
+            int index = delta.getIndex(i);
+            int value = delta.getValue(i);
+
+            if (value == LightridersBoardDelta.EMPTY) {
+                clearIndex(index);
+            } else if (value == LightridersBoardDelta.BLOCKED) {
+                blockIndex(index);
+            } else {
+                setPlayerIndex(index, value);
+            }
+        }
+    }
+
+    public boolean isInsideBoard(Point point) {
+        return isInsideBoard(point.x, point.y);
+    }
+
+    public boolean isInsideBoard(int x, int y) {
+        return x >= 0 && y >= 0 && x < this.width && y < this.height;
+    }
+
+    private String encode() {
+        int size = this.width * this.height;
+        StringBuilder builder = new StringBuilder(size * 2);
+
+        for (int index = 0; index < size; index++) {
+            if (index > 0) {
+                builder.append(',');
+            }
+            builder.append(getField(index));
+        }
+
+        return builder.toString();
+    }
+
+    private String getField(int index) {
+        int value = this.cells.get(index);
+
+        if (value == LightridersBoardDelta.EMPTY) {
+            return EMPTY;
+        }
+        if (value == LightridersBoardDelta.BLOCKED) {
+            return BLOCKED;
+        }
+
+        return PLAYER_FIELDS[value];
+    }
+
+    private void clearIndex(int index) {
+        checkWritable();
+        logPreviousValue(index);
+        this.encoded = null;
+        if (this.changes != null) {
+            this.changes.add(index, LightridersBoardDelta.EMPTY);
+        }
+
+        this.cells.set(index, LightridersBoardDelta.EMPTY);
+    }
+
+    private void blockIndex(int index) {
+        checkWritable();
+        logPreviousValue(index);
+        this.encoded = null;
+        if (this.changes != null) {
+            this.changes.add(index, LightridersBoardDelta.BLOCKED);
+        }
+
+        this.cells.set(index, LightridersBoardDelta.BLOCKED);
+    }
+
+    private void setPlayerIndex(int index, int playerId) {
+        if (playerId < 0 || playerId >= MAX_PLAYERS) {
+            throw new IllegalArgumentException("Player id out of range: " + playerId);
+        }
+        checkWritable();
+        logPreviousValue(index);
+        if (this.changes != null) {
+            this.changes.add(index, playerId);
+        }
+
+        this.encoded = null;
+
+        this.cells.set(index, playerId);
+    }
+
+    private void checkWritable() {
+        if (this.readOnly) {
+            throw new UnsupportedOperationException("Board is read-only, copy it to make changes");
+        }
+    }
+
+    private void logPreviousValue(int index) {
+        if (this.undoLog != null) {
+            this.undoLog.add(index, this.cells.get(index));
+        }
     }
 
-    private boolean isOutsideBoard(Point point) {
-        return point.x < 0 || point.y < 0 || point.x >= this.width || point.y >= this.height;
+    private int index(int x, int y) {
+        return y * this.width + x;
     }
 }
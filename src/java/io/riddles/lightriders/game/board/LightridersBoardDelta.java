@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.game.board;
+
+import java.util.Arrays;
+
+/**
+ * io.riddles.lightriders.game.board.LightridersBoardDelta
+ *
+ * The cells that were changed on a LightridersBoard, in the order they
+ * were changed. Cells are stored as their index on the board (y * width + x)
+ * together with their new value: EMPTY, BLOCKED or a player id.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersBoardDelta {
+
+    public static final int EMPTY = -1;
+    public static final int BLOCKED = -2;
+
+    private int[] indices;
+    private int[] values;
+    private int size;
+
+    public LightridersBoardDelta() {
+        this(8);
+    }
+
+    public LightridersBoardDelta(int capacity) {
+        this.indices = new int[Math.max(capacity, 1)];
+        this.values = new int[Math.max(capacity, 1)];
+        this.size = 0;
+    }
+
+    public void add(int index, int value) {
+        if (this.size == this.indices.length) {
+            this.indices = Arrays.copyOf(this.indices, this.size * 2);
+            this.values = Arrays.copyOf(this.values, this.size * 2);
+        }
+
+        this.indices[this.size] = index;
+        this.values[this.size] = value;
+        this.size++;
+    }
+
+    public void clear() {
+        this.size = 0;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int getIndex(int i) {
+        return this.indices[i];
+    }
+
+    public int getValue(int i) {
+        return this.values[i];
+    }
+
+    /**
+     * @return A copy of this delta without unused capacity, for long term storage
+     */
+    public LightridersBoardDelta trim() {
+        LightridersBoardDelta delta = new LightridersBoardDelta(this.size);
+        System.arraycopy(this.indices, 0, delta.indices, 0, this.size);
+        System.arraycopy(this.values, 0, delta.values, 0, this.size);
+        delta.size = this.size;
+
+        return delta;
+    }
+}
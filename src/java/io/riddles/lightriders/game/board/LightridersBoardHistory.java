@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.game.board;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * io.riddles.lightriders.game.board.LightridersBoardHistory
+ *
+ * Stores the board of every round of a game as the cells that changed in
+ * each round, plus a keyframe with all non-empty cells every K rounds.
+ * The board of round N is rebuilt from the nearest keyframe before it,
+ * so at most K - 1 rounds of changes have to be applied.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersBoardHistory {
+
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 64;
+
+    private LightridersBoard board;
+    private int keyframeInterval;
+    private ArrayList<LightridersBoardDelta> keyframes;
+    private ArrayList<LightridersBoardDelta> deltas;
+    private LightridersBoard sharedBoard;
+    private int sharedBoardIndex;
+
+    public LightridersBoardHistory(LightridersBoard board) {
+        this(board, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * @param board The live board, only its size and kind of storage are
+     *              used after the base snapshot is taken
+     * @param keyframeInterval Amount of deltas between keyframes
+     */
+    public LightridersBoardHistory(LightridersBoard board, int keyframeInterval) {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("Keyframe interval must be at least 1");
+        }
+
+        this.board = board;
+        this.keyframeInterval = keyframeInterval;
+        this.keyframes = new ArrayList<>();
+        this.keyframes.add(board.snapshot());
+        this.deltas = new ArrayList<>();
+    }
+
+    public void addDelta(LightridersBoardDelta delta) {
+        this.deltas.add(delta.trim());
+
+        int size = this.deltas.size();
+        if (size % this.keyframeInterval == 0) {
+            LightridersBoardDelta previous = this.keyframes.get(this.keyframes.size() - 1);
+            this.keyframes.add(merge(previous, this.deltas.subList(size - this.keyframeInterval, size)));
+        }
+    }
+
+    /**
+     * @return The amount of stored deltas, the base board has index 0
+     */
+    public int size() {
+        return this.deltas.size();
+    }
+
+    public int getKeyframeInterval() {
+        return this.keyframeInterval;
+    }
+
+    public LightridersBoardDelta getDelta(int index) {
+        return this.deltas.get(index - 1);
+    }
+
+    /**
+     * @param index Index of the board, a multiple of the keyframe interval
+     * @return All non-empty cells of the board, in index order
+     */
+    public LightridersBoardDelta getKeyframe(int index) {
+        if (index % this.keyframeInterval != 0 || index / this.keyframeInterval >= this.keyframes.size()) {
+            throw new IllegalArgumentException("No keyframe stored for index " + index);
+        }
+
+        return this.keyframes.get(index / this.keyframeInterval);
+    }
+
+    /**
+     * Gets the board as it was after the given amount of deltas. The last
+     * board asked for is kept, so asking for the same one again is free.
+     * @param index Amount of deltas to apply on the base board
+     * @return A read-only board, shared with other callers
+     */
+    public synchronized LightridersBoard getBoard(int index) {
+        if (this.sharedBoard == null || this.sharedBoardIndex != index) {
+            this.sharedBoard = rebuild(index).setReadOnly();
+            this.sharedBoardIndex = index;
+        }
+
+        return this.sharedBoard;
+    }
+
+    /**
+     * Rebuilds the board as it was after the given amount of deltas.
+     * @param index Amount of deltas to apply on the base board
+     * @return A new board that is not shared with the history
+     */
+    public LightridersBoard rebuild(int index) {
+        if (index < 0 || index > this.deltas.size()) {
+            throw new IllegalArgumentException("No board stored for index " + index);
+        }
+
+        int keyframe = index / this.keyframeInterval;
+        LightridersBoard board = this.board.createEmpty();
+        board.applyDelta(this.keyframes.get(keyframe));
+        for (int i = keyframe * this.keyframeInterval; i < index; i++) {
+            board.applyDelta(this.deltas.get(i));
+        }
+
+        return board;
+    }
+
+    /**
+     * Applies changes on a keyframe without a board: the last value of
+     * each changed cell replaces the one in the keyframe.
+     * @param keyframe Non-empty cells in index order
+     * @param deltas Changes after the keyframe, in order
+     * @return Non-empty cells after the changes, in index order
+     */
+    private static LightridersBoardDelta merge(LightridersBoardDelta keyframe, Iterable<LightridersBoardDelta> deltas) {
+        int changeCount = 0;
+        for (LightridersBoardDelta delta : deltas) {
+            changeCount += delta.size();
+        }
+
+        // Sort the changes by index, keeping their order within an index
+        long[] changes = new long[changeCount];
+        int[] values = new int[changeCount];
+        int sequence = 0;
+        for (LightridersBoardDelta delta : deltas) {
+            for (int i = 0; i < delta.size(); i++) {
+                changes[sequence] = ((long) delta.getIndex(i) << 32) | sequence;
+                values[sequence] = delta.getValue(i);
+                sequence++;
+            }
+        }
+        Arrays.sort(changes);
+
+        LightridersBoardDelta merged = new LightridersBoardDelta(keyframe.size() + changeCount);
+        int k = 0;
+        int c = 0;
+
+        while (k < keyframe.size() || c < changeCount) {
+            int keyframeIndex = k < keyframe.size() ? keyframe.getIndex(k) : Integer.MAX_VALUE;
+            int changeIndex = c < changeCount ? (int) (changes[c] >>> 32) : Integer.MAX_VALUE;
+
+            if (keyframeIndex < changeIndex) {
+                merged.add(keyframeIndex, keyframe.getValue(k++));
+                continue;
+            }
+
+            // Skip to the last change of this cell
+            while (c + 1 < changeCount && (int) (changes[c + 1] >>> 32) == changeIndex) {
+                c++;
+            }
+            int value = values[(int) changes[c++]];
+
+            if (keyframeIndex == changeIndex) {
+                k++;
+            }
+            if (value != LightridersBoardDelta.EMPTY) {
+                merged.add(changeIndex, value);
+            }
+        }
+
+        return merged.trim();
+    }
+}
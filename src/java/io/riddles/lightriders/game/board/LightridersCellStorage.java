@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.game.board;
+
+/**
+ * io.riddles.lightriders.game.board.LightridersCellStorage
+ *
+ * Stores the cells of a LightridersBoard by their index (y * width + x).
+ * Cell values are the same as in LightridersBoardDelta: EMPTY, BLOCKED
+ * or a player id.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public interface LightridersCellStorage {
+
+    int size();
+
+    int get(int index);
+
+    void set(int index, int value);
+
+    void clear();
+
+    /**
+     * @return A storage of the same kind with the same cells
+     */
+    LightridersCellStorage copy();
+
+    /**
+     * @return A storage of the same kind and size with only empty cells
+     */
+    LightridersCellStorage createEmpty();
+}
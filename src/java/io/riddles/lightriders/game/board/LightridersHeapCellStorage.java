@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.game.board;
+
+import java.util.Arrays;
+
+/**
+ * io.riddles.lightriders.game.board.LightridersHeapCellStorage
+ *
+ * Stores the cells in primitive arrays on the heap. A bitset keeps track
+ * of which cells are taken, a second bitset marks the cells a player's
+ * head is on and a byte per cell stores which player that is.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersHeapCellStorage implements LightridersCellStorage {
+
+    private int size;
+    private long[] occupied;
+    private long[] heads;
+    private byte[] owners;
+
+    public LightridersHeapCellStorage(int size) {
+        this.size = size;
+        this.occupied = new long[wordCount(size)];
+        this.heads = new long[wordCount(size)];
+        this.owners = new byte[size];
+    }
+
+    private LightridersHeapCellStorage(LightridersHeapCellStorage storage) {
+        this.size = storage.size;
+        this.occupied = storage.occupied.clone();
+        this.heads = storage.heads.clone();
+        this.owners = storage.owners.clone();
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public int get(int index) {
+        if (!isSet(this.occupied, index)) {
+            return LightridersBoardDelta.EMPTY;
+        }
+        if (isSet(this.heads, index)) {
+            return this.owners[index] & 0xFF;
+        }
+
+        return LightridersBoardDelta.BLOCKED;
+    }
+
+    @Override
+    public void set(int index, int value) {
+        if (value == LightridersBoardDelta.EMPTY) {
+            unset(this.occupied, index);
+            unset(this.heads, index);
+        } else if (value == LightridersBoardDelta.BLOCKED) {
+            set(this.occupied, index);
+            unset(this.heads, index);
+        } else {
+            set(this.occupied, index);
+            set(this.heads, index);
+            this.owners[index] = (byte) value;
+        }
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(this.occupied, 0L);
+        Arrays.fill(this.heads, 0L);
+        Arrays.fill(this.owners, (byte) 0);
+    }
+
+    @Override
+    public LightridersCellStorage copy() {
+        return new LightridersHeapCellStorage(this);
+    }
+
+    @Override
+    public LightridersCellStorage createEmpty() {
+        return new LightridersHeapCellStorage(this.size);
+    }
+
+    private static int wordCount(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private static void unset(long[] bits, int index) {
+        bits[index >>> 6] &= ~(1L << index);
+    }
+}
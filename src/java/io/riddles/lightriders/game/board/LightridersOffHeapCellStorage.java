@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.game.board;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * io.riddles.lightriders.game.board.LightridersOffHeapCellStorage
+ *
+ * Stores the cells outside of the Java heap, two bytes per cell, in a
+ * direct buffer or in a memory-mapped temporary file. Meant for very large
+ * fields, where arrays on the heap would put pressure on the garbage
+ * collector. A zero cell is empty, so new buffers and files need no
+ * initialization. Copies are made with a single bulk copy of the buffer
+ * and are always held in a direct buffer, like new empty storages.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersOffHeapCellStorage implements LightridersCellStorage {
+
+    private static final int BYTES_PER_CELL = 2;
+    private static final char STORED_EMPTY = 0;
+    private static final char STORED_BLOCKED = 1;
+    private static final char STORED_PLAYER_OFFSET = 2;
+
+    private int size;
+    private ByteBuffer cells;
+
+    private LightridersOffHeapCellStorage(int size, ByteBuffer cells) {
+        this.size = size;
+        this.cells = cells.order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * @param size Amount of cells
+     * @return Storage in a direct buffer
+     */
+    public static LightridersOffHeapCellStorage allocate(int size) {
+        return new LightridersOffHeapCellStorage(size, ByteBuffer.allocateDirect(byteCount(size)));
+    }
+
+    /**
+     * Creates a storage in a memory-mapped temporary file in the given
+     * directory. The file is removed again as soon as the system allows it.
+     * @param size Amount of cells
+     * @param directory Directory to create the file in
+     * @return Storage in a memory-mapped file
+     * @throws IOException When the file can't be created or mapped
+     */
+    public static LightridersOffHeapCellStorage map(int size, File directory) throws IOException {
+        File file = File.createTempFile("lightriders-board", ".cells", directory);
+        file.deleteOnExit();
+
+        ByteBuffer cells;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(byteCount(size));
+            cells = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, byteCount(size));
+        }
+
+        // The mapping stays valid after the file is deleted, where the OS allows that
+        file.delete();
+
+        return new LightridersOffHeapCellStorage(size, cells);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public int get(int index) {
+        char stored = this.cells.getChar(index * BYTES_PER_CELL);
+
+        if (stored == STORED_EMPTY) {
+            return LightridersBoardDelta.EMPTY;
+        }
+        if (stored == STORED_BLOCKED) {
+            return LightridersBoardDelta.BLOCKED;
+        }
+
+        return stored - STORED_PLAYER_OFFSET;
+    }
+
+    @Override
+    public void set(int index, int value) {
+        char stored;
+
+        if (value == LightridersBoardDelta.EMPTY) {
+            stored = STORED_EMPTY;
+        } else if (value == LightridersBoardDelta.BLOCKED) {
+            stored = STORED_BLOCKED;
+        } else {
+            stored = (char) (value + STORED_PLAYER_OFFSET);
+        }
+
+        this.cells.putChar(index * BYTES_PER_CELL, stored);
+    }
+
+    @Override
+    public void clear() {
+        int byteCount = byteCount(this.size);
+        int position = 0;
+
+        for (; position + 8 <= byteCount; position += 8) {
+            this.cells.putLong(position, 0L);
+        }
+        for (; position < byteCount; position++) {
+            this.cells.put(position, (byte) 0);
+        }
+    }
+
+    @Override
+    public LightridersCellStorage copy() {
+        ByteBuffer source = this.cells.duplicate();
+        source.clear();
+
+        ByteBuffer target = ByteBuffer.allocateDirect(byteCount(this.size));
+        target.put(source);
+
+        return new LightridersOffHeapCellStorage(this.size, target);
+    }
+
+    @Override
+    public LightridersCellStorage createEmpty() {
+        return allocate(this.size);
+    }
+
+    private static int byteCount(int size) {
+        if (size > Integer.MAX_VALUE / BYTES_PER_CELL) {
+            throw new IllegalArgumentException("Too many cells for one buffer: " + size);
+        }
+
+        return size * BYTES_PER_CELL;
+    }
+}
@@ -30,6 +30,14 @@ import io.riddles.javainterface.game.move.AbstractMove;
  */
 public class LightridersMove extends AbstractMove {
 
+    private static final LightridersMove[] SHARED_MOVES = new LightridersMove[MoveType.values().length];
+
+    static {
+        for (MoveType type : MoveType.values()) {
+            SHARED_MOVES[type.ordinal()] = new LightridersMove(type);
+        }
+    }
+
     private MoveType type;
 
     public LightridersMove(MoveType type) {
@@ -40,6 +48,21 @@ public class LightridersMove extends AbstractMove {
         super(exception);
     }
 
+    public LightridersMove(MoveType type, Exception exception) {
+        super(exception);
+        this.type = type;
+    }
+
+    /**
+     * Returns the same instance for every call with the same type, so no
+     * move is created per player per round. Shared moves must not be changed.
+     * @param type Type of the move
+     * @return Shared move without exception
+     */
+    public static LightridersMove of(MoveType type) {
+        return SHARED_MOVES[type.ordinal()];
+    }
+
     public MoveType getMoveType() {
         return this.type;
     }
@@ -19,49 +19,60 @@
 
 package io.riddles.lightriders.game.move;
 
-import io.riddles.lightriders.game.player.LightridersPlayer;
 import io.riddles.javainterface.exception.InvalidInputException;
 import io.riddles.javainterface.serialize.Deserializer;
 
 /**
  * io.riddles.lightriders.game.move.LightridersMoveDeserializer
  *
- * [description]
+ * Parses the response of a bot to a move, ignoring case. Valid responses
+ * return the shared move of their type and invalid ones return a shared
+ * move with a preallocated exception, so parsing doesn't allocate and
+ * bots that send garbage every round don't cost a stack trace each time.
  *
  * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
  */
 public class LightridersMoveDeserializer implements Deserializer<LightridersMove> {
 
+    private static final LightridersMove INVALID_MOVE =
+            new LightridersMove(new InvalidInputException("Move isn't valid"));
+    private static final LightridersMove FAILED_MOVE =
+            new LightridersMove(new InvalidInputException("Failed to parse move"));
+
     @Override
     public LightridersMove traverse(String string) {
-        try {
-            return visitMove(string);
-        } catch (InvalidInputException ex) {
-            return new LightridersMove(ex);
-        } catch (Exception ex) {
-            return new LightridersMove(new InvalidInputException("Failed to parse move"));
+        if (string == null) {
+            return FAILED_MOVE;
+        }
+
+        MoveType type = visitMoveType(string);
+        if (type == null) {
+            return INVALID_MOVE;
         }
-    }
 
-    private LightridersMove visitMove(String input) throws InvalidInputException {
-        MoveType type = visitMoveType(input);
-        return new LightridersMove(type);
+        return LightridersMove.of(type);
     }
 
-    private MoveType visitMoveType(String input) throws InvalidInputException {
-        switch (input.toLowerCase()) {
-            case "up":
-                return MoveType.UP;
-            case "down":
-                return MoveType.DOWN;
-            case "left":
-                return MoveType.LEFT;
-            case "right":
-                return MoveType.RIGHT;
-            case "pass":
-                return MoveType.PASS;
+    /**
+     * @return The type of the move, or null if the input isn't valid
+     */
+    private MoveType visitMoveType(String input) {
+        switch (input.length()) {
+            case 2:
+                return matches(input, "up") ? MoveType.UP : null;
+            case 4:
+                if (matches(input, "down")) return MoveType.DOWN;
+                if (matches(input, "left")) return MoveType.LEFT;
+                if (matches(input, "pass")) return MoveType.PASS;
+                return null;
+            case 5:
+                return matches(input, "right") ? MoveType.RIGHT : null;
             default:
-                throw new InvalidInputException("Move isn't valid");
+                return null;
         }
     }
+
+    private static boolean matches(String input, String name) {
+        return input.regionMatches(true, 0, name, 0, name.length());
+    }
 }
@@ -29,11 +29,19 @@ import java.awt.*;
  * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
  */
 public enum MoveType {
-    UP,
-    DOWN,
-    LEFT,
-    RIGHT,
-    PASS;
+    UP(0, -1),
+    DOWN(0, 1),
+    LEFT(-1, 0),
+    RIGHT(1, 0),
+    PASS(0, 0);
+
+    private final int deltaX;
+    private final int deltaY;
+
+    MoveType(int deltaX, int deltaY) {
+        this.deltaX = deltaX;
+        this.deltaY = deltaY;
+    }
 
     public MoveType getOpposite() {
         switch (this) {
@@ -50,18 +58,19 @@ public enum MoveType {
         return this;
     }
 
+    /**
+     * @return A new Point with the direction of this move, use getDeltaX()
+     * and getDeltaY() in code that runs every round
+     */
     public Point getDirection() {
-        switch (this) {
-            case UP:
-                return new Point(0, -1);
-            case DOWN:
-                return new Point(0, 1);
-            case LEFT:
-                return new Point(-1, 0);
-            case RIGHT:
-                return new Point(1, 0);
-        }
+        return new Point(this.deltaX, this.deltaY);
+    }
+
+    public int getDeltaX() {
+        return this.deltaX;
+    }
 
-        return new Point(0, 0);
+    public int getDeltaY() {
+        return this.deltaY;
     }
 }
\ No newline at end of file
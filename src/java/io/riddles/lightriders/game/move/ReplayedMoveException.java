@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.game.move;
+
+/**
+ * io.riddles.lightriders.game.move.ReplayedMoveException
+ *
+ * Error of a move that was read from a recorded game. Only the message
+ * is kept, no stack trace is filled in.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class ReplayedMoveException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public ReplayedMoveException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.game.processor;
+
+/**
+ * io.riddles.lightriders.game.processor.LightridersCoordinateIndex
+ *
+ * Counts how many players are on each coordinate in a round, so collisions
+ * can be found in O(players) instead of comparing every pair of players.
+ * Open addressing hash table on primitive arrays, coordinates outside the
+ * board are supported. Can be cleared and reused every round.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersCoordinateIndex {
+
+    private long[] keys;
+    private int[] counts;
+    private int[] usedSlots;
+    private int size;
+    private int mask;
+
+    public LightridersCoordinateIndex(int maxCoordinates) {
+        int capacity = Integer.highestOneBit(Math.max(maxCoordinates, 2) * 2 - 1) << 1;
+
+        this.keys = new long[capacity];
+        this.counts = new int[capacity];
+        this.usedSlots = new int[maxCoordinates];
+        this.mask = capacity - 1;
+        this.size = 0;
+    }
+
+    public void clear() {
+        for (int i = 0; i < this.size; i++) {
+            this.counts[this.usedSlots[i]] = 0;
+        }
+        this.size = 0;
+    }
+
+    public void add(int x, int y) {
+        long key = key(x, y);
+        int slot = find(key);
+
+        if (this.counts[slot] == 0) {
+            if (this.size == this.usedSlots.length) {
+                throw new IllegalStateException("Index is full");
+            }
+
+            this.keys[slot] = key;
+            this.usedSlots[this.size++] = slot;
+        }
+
+        this.counts[slot]++;
+    }
+
+    public int count(int x, int y) {
+        return this.counts[find(key(x, y))];
+    }
+
+    public int capacity() {
+        return this.usedSlots.length;
+    }
+
+    private int find(long key) {
+        int slot = hash(key) & this.mask;
+
+        while (this.counts[slot] != 0 && this.keys[slot] != key) {
+            slot = (slot + 1) & this.mask;
+        }
+
+        return slot;
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+}
@@ -27,7 +27,7 @@ import io.riddles.lightriders.game.move.LightridersMove;
 import io.riddles.lightriders.game.state.LightridersPlayerState;
 import io.riddles.lightriders.game.state.LightridersState;
 
-import java.awt.*;
+import java.util.ArrayList;
 
 /**
  * io.riddles.lightriders.game.processor.LightridersLogic
@@ -38,70 +38,112 @@ import java.awt.*;
  */
 public class LightridersLogic {
 
+    // Moves that were rejected for going back, shared like the moves themselves
+    private static final LightridersMove[] OPPOSITE_MOVES = new LightridersMove[MoveType.values().length];
+
+    static {
+        InvalidMoveException exception = new InvalidMoveException("Can't move opposite of current direction");
+
+        for (MoveType moveType : MoveType.values()) {
+            OPPOSITE_MOVES[moveType.ordinal()] = new LightridersMove(moveType, exception);
+        }
+    }
+
+    // Reused every round, so transforming a state doesn't allocate
+    private static final ThreadLocal<LightridersCoordinateIndex> COORDINATE_INDEX =
+            new ThreadLocal<>();
+
     /**
      * Takes a LightridersState and transforms it with a LightridersMove.
      * @param state The initial state
      */
     public static void transform(LightridersState state) {
-        LightridersBoard board = state.getBoard();
+        transform(state.getBoard(), state.getPlayerStates(), state.getRoundNumber());
+    }
 
-        for (LightridersPlayerState playerState : state.getPlayerStates()) {
+    /**
+     * Moves the players on the board with the moves stored in their player
+     * states, without needing a LightridersState.
+     * @param board Board to move the players on
+     * @param playerStates Players with their moves, in player id order
+     * @param roundNumber Round the moves are for
+     */
+    public static void transform(LightridersBoard board, ArrayList<LightridersPlayerState> playerStates,
+                                 int roundNumber) {
+        for (int i = 0; i < playerStates.size(); i++) {
+            LightridersPlayerState playerState = playerStates.get(i);
             if (!playerState.isAlive()) continue;
 
-            board.setBlocked(playerState.getCoordinate());
+            board.setBlocked(playerState.getX(), playerState.getY());
 
-            Point newCoordinate = getNewPlayerCoordinate(playerState, state.getRoundNumber());
-            playerState.setCoordinate(newCoordinate);
+            updateDirection(playerState, roundNumber);
+            MoveType direction = playerState.getDirection();
+            playerState.setCoordinate(
+                    playerState.getX() + direction.getDeltaX(),
+                    playerState.getY() + direction.getDeltaY());
         }
 
-        setPlayersOnBoard(state);
+        setPlayersOnBoard(board, playerStates);
     }
 
-    private static Point getNewPlayerCoordinate(LightridersPlayerState playerState, int roundNumber) {
+    private static void updateDirection(LightridersPlayerState playerState, int roundNumber) {
         LightridersMove move = playerState.getMove();
         MoveType moveType = move.getMoveType();
 
         if (moveType != null && moveType != MoveType.PASS) {
             if (roundNumber > 1 && moveType.getOpposite() == playerState.getDirection()) {
-                move.setException(new InvalidMoveException(
-                        "Can't move opposite of current direction"));
+                // Moves can be shared between players, so don't change the move itself
+                playerState.setMove(OPPOSITE_MOVES[moveType.ordinal()]);
             } else {
                 playerState.setDirection(moveType);
             }
         }
-
-        Point playerCoordinate = playerState.getCoordinate();
-        Point direction = playerState.getDirection().getDirection();
-
-        return new Point(playerCoordinate.x + direction.x, playerCoordinate.y + direction.y);
     }
 
     /**
      * Stores the player on the board and kills the player if
-     * it crashed
+     * it crashed. Players on the same coordinate are found with a
+     * coordinate index, so this scales to many players.
      */
-    private static void setPlayersOnBoard(LightridersState state) {
-        LightridersBoard board = state.getBoard();
+    private static void setPlayersOnBoard(LightridersBoard board, ArrayList<LightridersPlayerState> playerStates) {
+        LightridersCoordinateIndex index = getCoordinateIndex(playerStates.size());
 
-        for (LightridersPlayerState playerState : state.getPlayerStates()) {
+        for (int i = 0; i < playerStates.size(); i++) {
+            LightridersPlayerState playerState = playerStates.get(i);
+            index.add(playerState.getX(), playerState.getY());
+        }
+
+        for (int i = 0; i < playerStates.size(); i++) {
+            LightridersPlayerState playerState = playerStates.get(i);
             if (!playerState.isAlive()) continue;
 
-            Point coordinate = playerState.getCoordinate();
-            long count = state.getPlayerStates().stream()
-                    .filter(otherPlayerState ->
-                            otherPlayerState.getCoordinate().equals(coordinate))
-                    .count();
+            int x = playerState.getX();
+            int y = playerState.getY();
+            int count = index.count(x, y);
 
             // player is on same coordinate as other player or non-empty/outside field
-            if (count > 1 || !board.isEmpty(coordinate)) {
+            if (count > 1 || !board.isEmpty(x, y)) {
                 playerState.kill();
 
-                if (count > 1) {
-                    board.setBlocked(coordinate);
+                if (count > 1 && board.isInsideBoard(x, y)) {
+                    board.setBlocked(x, y);
                 }
             } else {
-                board.setFieldAt(coordinate, playerState.getPlayerId() + "");
+                board.setPlayerAt(x, y, playerState.getPlayerId());
             }
         }
     }
+
+    private static LightridersCoordinateIndex getCoordinateIndex(int playerCount) {
+        LightridersCoordinateIndex index = COORDINATE_INDEX.get();
+
+        if (index == null || index.capacity() < playerCount) {
+            index = new LightridersCoordinateIndex(playerCount);
+            COORDINATE_INDEX.set(index);
+        } else {
+            index.clear();
+        }
+
+        return index;
+    }
 }
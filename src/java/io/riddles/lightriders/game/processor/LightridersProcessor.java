@@ -20,14 +20,29 @@
 package io.riddles.lightriders.game.processor;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
+import io.riddles.javainterface.configuration.Configuration;
+import io.riddles.javainterface.exception.InvalidInputException;
 import io.riddles.javainterface.game.player.PlayerProvider;
 import io.riddles.javainterface.game.processor.SimpleProcessor;
 import io.riddles.lightriders.engine.LightridersEngine;
+import io.riddles.lightriders.game.board.LightridersBoard;
+import io.riddles.lightriders.game.board.LightridersBoardDelta;
 import io.riddles.lightriders.game.move.*;
 import io.riddles.lightriders.game.player.LightridersPlayer;
 import io.riddles.lightriders.game.state.LightridersPlayerState;
 import io.riddles.lightriders.game.state.LightridersState;
+import io.riddles.lightriders.metrics.LightridersMetrics;
 
 /**
  * io.riddles.lightriders.game.processor.LightridersProcessor
@@ -38,25 +53,78 @@ import io.riddles.lightriders.game.state.LightridersState;
  */
 public class LightridersProcessor extends SimpleProcessor<LightridersState, LightridersPlayer> {
 
+    private static final int UPDATE_PREFIX_LENGTH = "update game ".length();
+
+    private Configuration configuration;
+    private LightridersMetrics metrics;
+    private CopyOnWriteArrayList<Consumer<LightridersState>> stateListeners;
     private LightridersMoveDeserializer moveDeserializer;
+    private ExecutorService moveExecutor;
+    private ConcurrentHashMap<Integer, Future<LightridersMove>> pendingMoves;
+    private ConcurrentHashMap<Integer, Integer> fieldRoundSent;
+    private LightridersState encodedDeltaState;
+    private String encodedDelta;
+    private LightridersRegionIndex regionIndex;
+    private LightridersState regionIndexState;
+    private LightridersState adjudicatedState;
+    private int[] adjudicatedRegionSizes;
+    private Integer adjudicatedWinnerId;
 
     public LightridersProcessor(PlayerProvider<LightridersPlayer> playerProvider) {
+        this(playerProvider, null);
+    }
+
+    /**
+     * @param playerProvider Players of the game
+     * @param configuration Configuration of this game, or null to use the
+     *                      configuration of the running LightridersEngine
+     */
+    public LightridersProcessor(PlayerProvider<LightridersPlayer> playerProvider, Configuration configuration) {
+        this(playerProvider, configuration, new LightridersMetrics());
+    }
+
+    /**
+     * @param playerProvider Players of the game
+     * @param configuration Configuration of this game, or null to use the
+     *                      configuration of the running LightridersEngine
+     * @param metrics Metrics to add the timings of this game to
+     */
+    public LightridersProcessor(PlayerProvider<LightridersPlayer> playerProvider, Configuration configuration,
+                                LightridersMetrics metrics) {
         super(playerProvider);
+        this.configuration = configuration;
+        this.metrics = metrics;
+        this.stateListeners = new CopyOnWriteArrayList<>();
         this.moveDeserializer = new LightridersMoveDeserializer();
+        this.fieldRoundSent = new ConcurrentHashMap<>();
+        this.pendingMoves = new ConcurrentHashMap<>();
     }
 
     @Override
     public boolean hasGameEnded(LightridersState state) {
-        int maxRounds = LightridersEngine.configuration.getInt("maxRounds");
-        long alivePlayers = state.getPlayerStates().stream()
-                .filter(LightridersPlayerState::isAlive)
-                .count();
+        int maxRounds = getSetting("maxRounds", -1);
+        ArrayList<LightridersPlayerState> playerStates = state.getPlayerStates();
+        int alivePlayers = 0;
+
+        for (int i = 0; i < playerStates.size(); i++) {
+            if (playerStates.get(i).isAlive()) {
+                alivePlayers++;
+            }
+        }
 
-        return alivePlayers <= 1 || (maxRounds > 0 && state.getRoundNumber() >= maxRounds);
+        if (alivePlayers <= 1 || (maxRounds > 0 && state.getRoundNumber() >= maxRounds)) {
+            return true;
+        }
+
+        return getSetting("adjudicate", 0) > 0 && adjudicate(state);
     }
 
     @Override
     public Integer getWinnerId(LightridersState state) {
+        if (state == this.adjudicatedState) {
+            return this.adjudicatedWinnerId;
+        }
+
         ArrayList<Integer> alivePlayerIds = state.getAlivePlayerIds();
 
         if (alivePlayerIds.size() == 1) {
@@ -73,8 +141,43 @@ public class LightridersProcessor extends SimpleProcessor<LightridersState, Ligh
 
     @Override
     public LightridersState createNextState(LightridersState inputState, int roundNumber) {
+        long start = System.nanoTime();
         LightridersState nextState = inputState.createNextState(roundNumber);
+        this.metrics.addBoardCopyTime(System.nanoTime() - start);
+
+        if (getSetting("concurrentMoves", 0) > 0 && hasSeparateIoHandlers()) {
+            requestMovesConcurrently(inputState, nextState);
+        } else {
+            requestMoves(inputState, nextState);
+        }
+
+        start = System.nanoTime();
+        nextState.getBoard(); // takes over or copies the board of the input state
+        long boardCopied = System.nanoTime();
+        LightridersLogic.transform(nextState);
+
+        this.metrics.addBoardCopyTime(boardCopied - start);
+        this.metrics.addTransformTime(System.nanoTime() - boardCopied);
+        this.metrics.addRound();
 
+        // Send exceptions to players
+        for (LightridersPlayerState playerState : nextState.getPlayerStates()) {
+            LightridersPlayer player = this.getPlayer(playerState.getPlayerId());
+            LightridersMove move = playerState.getMove();
+
+            if (move!= null && move.getException() != null && !isMoveRequestPending(player.getId())) {
+                player.sendWarning(move.getException().getMessage());
+            }
+        }
+
+        for (Consumer<LightridersState> stateListener : this.stateListeners) {
+            stateListener.accept(nextState);
+        }
+
+        return nextState;
+    }
+
+    private void requestMoves(LightridersState inputState, LightridersState nextState) {
         for (LightridersPlayerState playerState : nextState.getPlayerStates()) {
             LightridersPlayer player = this.getPlayer(playerState.getPlayerId());
 
@@ -85,32 +188,308 @@ public class LightridersProcessor extends SimpleProcessor<LightridersState, Ligh
 
             playerState.setMove(move);
         }
+    }
 
-        LightridersLogic.transform(nextState);
+    /**
+     * Sends the updates to all living players and waits for their moves at
+     * the same time, so a round takes as long as the slowest player instead
+     * of the sum of all players. The moves are still stored per player, so
+     * LightridersLogic applies them in player id order.
+     *
+     * A player whose request timed out keeps its thread reading the late
+     * answer, so nothing is sent to it until that request has finished.
+     */
+    private void requestMovesConcurrently(LightridersState inputState, LightridersState nextState) {
+        int moveTimeout = getSetting("moveTimeout", -1);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(moveTimeout);
+        ArrayList<LightridersPlayerState> playerStates = new ArrayList<>();
+        ArrayList<Future<LightridersMove>> futures = new ArrayList<>();
 
-        // Send exceptions to players
         for (LightridersPlayerState playerState : nextState.getPlayerStates()) {
+            if (!playerState.isAlive()) continue;
+
+            if (isMoveRequestPending(playerState.getPlayerId())) {
+                playerState.setMove(new LightridersMove(
+                        new InvalidInputException("Previous move request still running")));
+                continue;
+            }
+
             LightridersPlayer player = this.getPlayer(playerState.getPlayerId());
-            LightridersMove move = playerState.getMove();
+            playerStates.add(playerState);
+            futures.add(getMoveExecutor().submit(() -> {
+                sendUpdatesToPlayer(inputState, player);
+                return getPlayerMove(player);
+            }));
+        }
 
-            if (move!= null && move.getException() != null) {
-                player.sendWarning(move.getException().getMessage());
+        for (int i = 0; i < futures.size(); i++) {
+            LightridersPlayerState playerState = playerStates.get(i);
+            long timeLeft = moveTimeout > 0 ? Math.max(0, deadline - System.nanoTime()) : -1;
+            LightridersMove move = awaitMove(futures.get(i), timeLeft);
+
+            if (move == null) {
+                this.pendingMoves.put(playerState.getPlayerId(), futures.get(i));
+                move = new LightridersMove(new InvalidInputException("Move request timed out"));
             }
+
+            playerState.setMove(move);
         }
+    }
 
-        return nextState;
+    /**
+     * @param timeout Nanoseconds to wait at most, or negative to wait until the move is there
+     * @return The move, or null if the request is still running after the timeout
+     */
+    private LightridersMove awaitMove(Future<LightridersMove> future, long timeout) {
+        try {
+            if (timeout >= 0) {
+                return future.get(timeout, TimeUnit.NANOSECONDS);
+            }
+            return future.get();
+        } catch (TimeoutException ex) {
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return new LightridersMove(new InvalidInputException("Move request interrupted"));
+        } catch (ExecutionException ex) {
+            return new LightridersMove(new InvalidInputException("Failed to get move"));
+        }
+    }
+
+    /**
+     * @return Whether a timed out move request of the player is still
+     * waiting for its answer
+     */
+    private boolean isMoveRequestPending(int playerId) {
+        Future<LightridersMove> pending = this.pendingMoves.get(playerId);
+
+        if (pending != null && pending.isDone()) {
+            this.pendingMoves.remove(playerId, pending);
+            return false;
+        }
+
+        return pending != null;
+    }
+
+    /**
+     * Moves can only be requested at the same time if every player
+     * has its own connection, otherwise responses can get mixed up.
+     */
+    private boolean hasSeparateIoHandlers() {
+        HashSet<Object> ioHandlers = new HashSet<>();
+
+        for (LightridersPlayer player : this.playerProvider.getPlayers()) {
+            if (player.getIoHandler() == null || !ioHandlers.add(player.getIoHandler())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private ExecutorService getMoveExecutor() {
+        if (this.moveExecutor == null) {
+            this.moveExecutor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "lightriders-move");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        return this.moveExecutor;
     }
 
     private void sendUpdatesToPlayer(LightridersState state, LightridersPlayer player) {
-        player.sendUpdate("round", state.getRoundNumber());
-        player.sendUpdate("field", state.getBoard().toString());
+        int roundNumber = state.getRoundNumber();
+        player.sendUpdate("round", roundNumber);
+        addBytesSent(player, "round", digitCount(roundNumber));
+
+        if (getSetting("fieldDeltas", 0) > 0) {
+            sendFieldDeltaToPlayer(state, player);
+        } else {
+            sendUpdate(player, "field", state.getBoard().toString());
+        }
+    }
+
+    private void sendUpdate(LightridersPlayer player, String type, String value) {
+        player.sendUpdate(type, value);
+        addBytesSent(player, type, value.length());
+    }
+
+    /**
+     * Counts the length of the update line, "update game [type] [value]".
+     */
+    private void addBytesSent(LightridersPlayer player, String type, int valueLength) {
+        this.metrics.addBytesSent(player.getId(), UPDATE_PREFIX_LENGTH + type.length() + valueLength + 2);
+    }
+
+    private static int digitCount(int value) {
+        int digits = value < 0 ? 2 : 1;
+        for (int rest = Math.abs(value / 10); rest > 0; rest /= 10) {
+            digits++;
+        }
+
+        return digits;
+    }
+
+    /**
+     * Sends the full field the first time, after that only the cells
+     * that changed in the previous round. A player that missed a round,
+     * because its previous move request was still running, gets the
+     * full field again.
+     */
+    private void sendFieldDeltaToPlayer(LightridersState state, LightridersPlayer player) {
+        LightridersBoardDelta changes = state.getRoundChanges();
+
+        Integer previousRound = this.fieldRoundSent.put(player.getId(), state.getRoundNumber());
+        boolean hasPreviousField = previousRound != null && previousRound == state.getRoundNumber() - 1;
+
+        if (!hasPreviousField || changes == null) {
+            sendUpdate(player, "field", state.getBoard().toString());
+        } else {
+            sendUpdate(player, "field_delta", getEncodedDelta(state, changes));
+        }
+    }
+
+    /**
+     * Encodes the round's changes once and sends the same String to every player.
+     */
+    private synchronized String getEncodedDelta(LightridersState state, LightridersBoardDelta changes) {
+        if (this.encodedDeltaState != state) {
+            this.encodedDelta = state.getBoard().deltaToString(changes);
+            this.encodedDeltaState = state;
+        }
+
+        return this.encodedDelta;
     }
 
     private LightridersMove getPlayerMove(LightridersPlayer player) {
+        long start = System.nanoTime();
         String response = player.requestMove(ActionType.MOVE);
+        this.metrics.addMoveLatency(player.getId(), System.nanoTime() - start);
+
         return this.moveDeserializer.traverse(response);
     }
 
+    /**
+     * @param stateListener Is called with every new state as soon as it is created
+     */
+    public void addStateListener(Consumer<LightridersState> stateListener) {
+        this.stateListeners.add(stateListener);
+    }
+
+    /**
+     * @return The state the game was adjudicated on, or null if it wasn't
+     */
+    public LightridersState getAdjudicatedState() {
+        return this.adjudicatedState;
+    }
+
+    /**
+     * @return Per player the amount of cells it could still reach when the
+     * game was adjudicated, -1 for crashed players
+     */
+    public int[] getAdjudicatedRegionSizes() {
+        return this.adjudicatedRegionSizes;
+    }
+
+    /**
+     * Ends the game when no two players can reach each other anymore. The
+     * player with the most space left wins, or nobody if that is a tie.
+     * @return Whether the game is decided
+     */
+    private boolean adjudicate(LightridersState state) {
+        if (state == this.adjudicatedState) {
+            return true;
+        }
+
+        updateRegionIndex(state);
+
+        ArrayList<LightridersPlayerState> playerStates = state.getPlayerStates();
+        if (!this.regionIndex.arePlayersIsolated(playerStates)) {
+            return false;
+        }
+
+        int[] regionSizes = new int[playerStates.size()];
+        int maxSize = -1;
+        Integer winnerId = null;
+
+        for (LightridersPlayerState playerState : playerStates) {
+            int size = playerState.isAlive() ? this.regionIndex.getReachableSize(playerState) : -1;
+            regionSizes[playerState.getPlayerId()] = size;
+
+            if (size > maxSize) {
+                maxSize = size;
+                winnerId = playerState.getPlayerId();
+            } else if (size == maxSize) {
+                winnerId = null;
+            }
+        }
+
+        this.adjudicatedState = state;
+        this.adjudicatedRegionSizes = regionSizes;
+        this.adjudicatedWinnerId = winnerId;
+
+        return true;
+    }
+
+    /**
+     * Updates the regions from the cells changed in the last round if
+     * the index is at the previous state, otherwise labels the board again.
+     */
+    private void updateRegionIndex(LightridersState state) {
+        LightridersBoard board = state.getBoard();
+        LightridersBoardDelta changes = state.getRoundChanges();
+
+        if (this.regionIndex == null) {
+            this.regionIndex = new LightridersRegionIndex(board.getWidth(), board.getHeight());
+            this.regionIndex.rebuild(board);
+        } else if (changes != null && this.regionIndexState != null
+                && state.getPreviousState() == this.regionIndexState) {
+            this.regionIndex.update(board, changes);
+        } else if (state != this.regionIndexState) {
+            this.regionIndex.rebuild(board);
+        }
+
+        this.regionIndexState = state;
+    }
+
+    public LightridersMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * @return Whether the metrics are added to the played game
+     */
+    public boolean isMetricsEnabled() {
+        return getSetting("metrics", 0) > 0;
+    }
+
+    /**
+     * Reads an integer setting from the configuration. A processor that runs
+     * without one, such as the replay decoder's, gets the given default.
+     * @param key Setting to read
+     * @param defaultValue Value used when there is no configuration
+     * @return The setting's value
+     */
+    /**
+     * @return Whether the changes and keyframes of every round are added to the played game
+     */
+    public boolean isSeekingEnabled() {
+        return getSetting("keyframeInterval", 0) > 0;
+    }
+
+    private int getSetting(String key, int defaultValue) {
+        Configuration configuration = this.configuration != null
+                ? this.configuration : LightridersEngine.configuration;
+
+        if (configuration == null) {
+            return defaultValue;
+        }
+
+        return configuration.getInt(key);
+    }
+
     private LightridersPlayer getPlayer(int id) {
         return this.playerProvider.getPlayerById(id);
     }
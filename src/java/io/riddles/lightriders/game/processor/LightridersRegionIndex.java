@@ -0,0 +1,240 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.game.processor;
+
+import io.riddles.lightriders.game.board.LightridersBoard;
+import io.riddles.lightriders.game.board.LightridersBoardDelta;
+import io.riddles.lightriders.game.state.LightridersPlayerState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * io.riddles.lightriders.game.processor.LightridersRegionIndex
+ *
+ * Labels the connected regions of empty cells on a board, so it can be
+ * checked whether the players can still reach each other. Cells are only
+ * ever blocked during a game, so regions can split but never merge. After
+ * the first labeling the index is updated from the cells changed each
+ * round, and only labels the board again when a blocked cell had empty
+ * neighbours that were not connected around it, which is the only way a
+ * region can be split.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersRegionIndex {
+
+    private static final int NO_REGION = 0;
+
+    private int width;
+    private int height;
+    private int[] labels;
+    private int[] sizes;
+    private int[] queue;
+    private int regionCount;
+
+    public LightridersRegionIndex(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.labels = new int[width * height];
+        this.queue = new int[width * height];
+        this.sizes = new int[16];
+    }
+
+    /**
+     * Labels all regions of the board again.
+     * @param board Board to label
+     */
+    public void rebuild(LightridersBoard board) {
+        Arrays.fill(this.labels, NO_REGION);
+        this.regionCount = 0;
+
+        for (int y = 0; y < this.height; y++) {
+            for (int x = 0; x < this.width; x++) {
+                int index = y * this.width + x;
+
+                if (this.labels[index] == NO_REGION && board.isEmpty(x, y)) {
+                    fill(board, index, ++this.regionCount);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the cells that were blocked in a round from their regions,
+     * labeling the board again if that could have split a region.
+     * @param board Board after the round
+     * @param changes Cells changed in the round, in the order they changed
+     */
+    public void update(LightridersBoard board, LightridersBoardDelta changes) {
+        boolean mightBeSplit = false;
+
+        for (int i = 0; i < changes.size(); i++) {
+            int index = changes.getIndex(i);
+            int label = this.labels[index];
+
+            if (changes.getValue(i) == LightridersBoardDelta.EMPTY) {
+                // Regions can merge again, which this index can't follow
+                rebuild(board);
+                return;
+            }
+            if (label == NO_REGION) continue;
+
+            this.labels[index] = NO_REGION;
+            this.sizes[label]--;
+            mightBeSplit |= countConnectedNeighbours(index) > 1;
+        }
+
+        if (mightBeSplit) {
+            rebuild(board);
+        }
+    }
+
+    public int getRegion(int x, int y) {
+        if (x < 0 || y < 0 || x >= this.width || y >= this.height) {
+            return NO_REGION;
+        }
+
+        return this.labels[y * this.width + x];
+    }
+
+    public int getRegionSize(int region) {
+        return region == NO_REGION ? 0 : this.sizes[region];
+    }
+
+    /**
+     * @return The size of the largest region next to the player's position
+     */
+    public int getReachableSize(LightridersPlayerState playerState) {
+        int x = playerState.getX();
+        int y = playerState.getY();
+
+        return Math.max(
+                Math.max(getRegionSize(getRegion(x, y - 1)), getRegionSize(getRegion(x + 1, y))),
+                Math.max(getRegionSize(getRegion(x, y + 1)), getRegionSize(getRegion(x - 1, y))));
+    }
+
+    /**
+     * @param playerStates All players of the game
+     * @return Whether no region is next to more than one living player
+     */
+    public boolean arePlayersIsolated(ArrayList<LightridersPlayerState> playerStates) {
+        for (int i = 0; i < playerStates.size(); i++) {
+            LightridersPlayerState player = playerStates.get(i);
+            if (!player.isAlive()) continue;
+
+            for (int j = i + 1; j < playerStates.size(); j++) {
+                LightridersPlayerState other = playerStates.get(j);
+
+                if (other.isAlive() && sharesRegion(player, other)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private boolean sharesRegion(LightridersPlayerState player, LightridersPlayerState other) {
+        int x = player.getX();
+        int y = player.getY();
+
+        return isNextTo(other, getRegion(x, y - 1)) || isNextTo(other, getRegion(x + 1, y))
+                || isNextTo(other, getRegion(x, y + 1)) || isNextTo(other, getRegion(x - 1, y));
+    }
+
+    private boolean isNextTo(LightridersPlayerState playerState, int region) {
+        if (region == NO_REGION) {
+            return false;
+        }
+
+        int x = playerState.getX();
+        int y = playerState.getY();
+
+        return getRegion(x, y - 1) == region || getRegion(x + 1, y) == region
+                || getRegion(x, y + 1) == region || getRegion(x - 1, y) == region;
+    }
+
+    /**
+     * Counts the groups of empty direct neighbours of a cell that are
+     * still connected to each other through the cells around it. If
+     * there is more than one group, removing the cell might split its region.
+     */
+    private int countConnectedNeighbours(int index) {
+        int x = index % this.width;
+        int y = index / this.width;
+
+        boolean north = getRegion(x, y - 1) != NO_REGION;
+        boolean east = getRegion(x + 1, y) != NO_REGION;
+        boolean south = getRegion(x, y + 1) != NO_REGION;
+        boolean west = getRegion(x - 1, y) != NO_REGION;
+
+        int groups = (north ? 1 : 0) + (east ? 1 : 0) + (south ? 1 : 0) + (west ? 1 : 0);
+        int joins = 0;
+
+        if (north && east && getRegion(x + 1, y - 1) != NO_REGION) joins++;
+        if (east && south && getRegion(x + 1, y + 1) != NO_REGION) joins++;
+        if (south && west && getRegion(x - 1, y + 1) != NO_REGION) joins++;
+        if (west && north && getRegion(x - 1, y - 1) != NO_REGION) joins++;
+
+        // Four joins close the ring, which still is a single group
+        return Math.max(groups - joins, groups > 0 ? 1 : 0);
+    }
+
+    private void fill(LightridersBoard board, int start, int label) {
+        if (label >= this.sizes.length) {
+            this.sizes = Arrays.copyOf(this.sizes, this.sizes.length * 2);
+        }
+
+        int head = 0;
+        int tail = 0;
+        this.queue[tail++] = start;
+        this.labels[start] = label;
+
+        while (head < tail) {
+            int index = this.queue[head++];
+            int x = index % this.width;
+            int y = index / this.width;
+
+            tail = visit(board, x, y - 1, label, tail);
+            tail = visit(board, x + 1, y, label, tail);
+            tail = visit(board, x, y + 1, label, tail);
+            tail = visit(board, x - 1, y, label, tail);
+        }
+
+        this.sizes[label] = tail;
+    }
+
+    private int visit(LightridersBoard board, int x, int y, int label, int tail) {
+        if (!board.isEmpty(x, y)) {
+            return tail;
+        }
+
+        int index = y * this.width + x;
+        if (this.labels[index] != NO_REGION) {
+            return tail;
+        }
+
+        this.labels[index] = label;
+        this.queue[tail] = index;
+
+        return tail + 1;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.game.replay;
+
+import io.riddles.lightriders.game.board.LightridersBoard;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+
+/**
+ * io.riddles.lightriders.game.replay.LightridersBoardSeeker
+ *
+ * Rebuilds the board of any round of a played game, using the keyframes
+ * and round changes that LightridersSerializer writes when the game was
+ * played with a keyframeInterval. A board is rebuilt from the nearest
+ * keyframe before the round, so seeking takes the same time for every
+ * round of the game, however long it is.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersBoardSeeker {
+
+    private int width;
+    private int height;
+    private int firstRound;
+    private String[] changes;
+    private int[] keyframePositions;
+    private String[] keyframes;
+
+    public LightridersBoardSeeker(String playedGame) {
+        this(new JSONObject(playedGame));
+    }
+
+    public LightridersBoardSeeker(JSONObject playedGame) {
+        JSONObject field = playedGame.getJSONObject("settings").getJSONObject("field");
+        this.width = field.getInt("width");
+        this.height = field.getInt("height");
+
+        JSONArray states = playedGame.getJSONArray("states");
+        this.changes = new String[states.length()];
+        this.keyframePositions = new int[states.length()];
+        this.keyframes = new String[states.length()];
+        int keyframeCount = 0;
+
+        for (int i = 0; i < states.length(); i++) {
+            JSONObject state = states.getJSONObject(i);
+
+            if (i == 0) {
+                this.firstRound = state.getInt("round");
+            }
+
+            this.changes[i] = state.optString("changes", null);
+
+            String keyframe = state.optString("keyframe", null);
+            if (keyframe != null) {
+                this.keyframePositions[keyframeCount] = i;
+                this.keyframes[keyframeCount] = keyframe;
+                keyframeCount++;
+            }
+        }
+
+        this.keyframePositions = Arrays.copyOf(this.keyframePositions, keyframeCount);
+        this.keyframes = Arrays.copyOf(this.keyframes, keyframeCount);
+    }
+
+    public int getFirstRound() {
+        return this.firstRound;
+    }
+
+    public int getLastRound() {
+        return this.firstRound + this.changes.length - 1;
+    }
+
+    /**
+     * @param roundNumber Round to get the board of
+     * @return A new board as it was at the end of the round
+     */
+    public LightridersBoard seek(int roundNumber) {
+        int position = roundNumber - this.firstRound;
+
+        if (position < 0 || position >= this.changes.length) {
+            throw new IllegalArgumentException("Round " + roundNumber + " is not part of the game");
+        }
+
+        int keyframe = Arrays.binarySearch(this.keyframePositions, position);
+        if (keyframe < 0) {
+            keyframe = -keyframe - 2; // Last keyframe before the position
+        }
+        if (keyframe < 0) {
+            throw new IllegalStateException("No keyframe stored before round " + roundNumber);
+        }
+
+        LightridersBoard board = new LightridersBoard(this.width, this.height);
+        board.applyDelta(board.deltaFromString(this.keyframes[keyframe]));
+
+        for (int i = this.keyframePositions[keyframe] + 1; i <= position; i++) {
+            if (this.changes[i] != null) {
+                board.applyDelta(board.deltaFromString(this.changes[i]));
+            }
+        }
+
+        return board;
+    }
+}
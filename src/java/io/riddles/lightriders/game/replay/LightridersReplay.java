@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.game.replay;
+
+import io.riddles.lightriders.game.board.LightridersBoard;
+import io.riddles.lightriders.game.move.LightridersMove;
+import io.riddles.lightriders.game.move.MoveType;
+import io.riddles.lightriders.game.state.LightridersPlayerState;
+import io.riddles.lightriders.game.state.LightridersState;
+
+import java.awt.*;
+import java.util.ArrayList;
+
+/**
+ * io.riddles.lightriders.game.replay.LightridersReplay
+ *
+ * Everything needed to play a game again without the bots: the settings,
+ * the start position and direction of each player, the move of each
+ * player per round and the errors that can't be derived from the moves.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersReplay {
+
+    // Move codes, 3 bits each
+    public static final int NO_MOVE = 0;
+    public static final int INVALID_MOVE = 6;
+
+    private int width;
+    private int height;
+    private int maxRounds;
+    private String seed;
+    private Point[] startCoordinates;
+    private MoveType[] startDirections;
+    private ArrayList<byte[]> moves;
+    private ArrayList<ErrorEvent> errors;
+
+    public LightridersReplay(int width, int height, int maxRounds, String seed,
+                             Point[] startCoordinates, MoveType[] startDirections) {
+        this.width = width;
+        this.height = height;
+        this.maxRounds = maxRounds;
+        this.seed = seed;
+        this.startCoordinates = startCoordinates;
+        this.startDirections = startDirections;
+        this.moves = new ArrayList<>();
+        this.errors = new ArrayList<>();
+    }
+
+    /**
+     * Records a played game.
+     * @param initialState First state of the game
+     * @param maxRounds Configured maximum amount of rounds
+     * @param seed Configured random seed
+     * @return Replay of the game
+     */
+    public static LightridersReplay fromStates(LightridersState initialState, int maxRounds, String seed) {
+        ArrayList<LightridersPlayerState> playerStates = initialState.getPlayerStates();
+        int playerCount = playerStates.size();
+        Point[] startCoordinates = new Point[playerCount];
+        MoveType[] startDirections = new MoveType[playerCount];
+
+        for (int i = 0; i < playerCount; i++) {
+            startCoordinates[i] = new Point(playerStates.get(i).getCoordinate());
+            startDirections[i] = playerStates.get(i).getDirection();
+        }
+
+        LightridersBoard board = initialState.getBoard();
+        LightridersReplay replay = new LightridersReplay(board.getWidth(), board.getHeight(),
+                maxRounds, seed, startCoordinates, startDirections);
+
+        LightridersState state = initialState;
+        while (state.hasNextState()) {
+            state = (LightridersState) state.getNextState();
+            replay.recordRound(state);
+        }
+
+        return replay;
+    }
+
+    public void addRound(byte[] moveCodes) {
+        this.moves.add(moveCodes);
+    }
+
+    public void addError(int round, int playerId, String message) {
+        this.errors.add(new ErrorEvent(round, playerId, message));
+    }
+
+    /**
+     * Plays the recorded moves again and returns the resulting states.
+     * @return Initial state of the replayed game
+     */
+    public LightridersState toStates() {
+        return new LightridersReplaySimulator().simulate(this);
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    public int getMaxRounds() {
+        return this.maxRounds;
+    }
+
+    public String getSeed() {
+        return this.seed;
+    }
+
+    public int getPlayerCount() {
+        return this.startCoordinates.length;
+    }
+
+    public Point getStartCoordinate(int playerId) {
+        return this.startCoordinates[playerId];
+    }
+
+    public MoveType getStartDirection(int playerId) {
+        return this.startDirections[playerId];
+    }
+
+    public int getRoundCount() {
+        return this.moves.size();
+    }
+
+    public byte[] getMoveCodes(int round) {
+        return this.moves.get(round - 1);
+    }
+
+    public ArrayList<ErrorEvent> getErrors() {
+        return this.errors;
+    }
+
+    public static int encodeMoveType(MoveType moveType) {
+        return moveType.ordinal() + 1;
+    }
+
+    public static MoveType decodeMoveType(int code) {
+        return MoveType.values()[code - 1];
+    }
+
+    private void recordRound(LightridersState state) {
+        byte[] moveCodes = new byte[getPlayerCount()];
+
+        for (LightridersPlayerState playerState : state.getPlayerStates()) {
+            LightridersMove move = playerState.getMove();
+            int playerId = playerState.getPlayerId();
+
+            if (move == null) {
+                moveCodes[playerId] = NO_MOVE;
+            } else if (move.getMoveType() != null) {
+                // Errors on valid move types are added again by LightridersLogic
+                moveCodes[playerId] = (byte) encodeMoveType(move.getMoveType());
+            } else {
+                moveCodes[playerId] = INVALID_MOVE;
+                String message = move.getException() != null ? move.getException().getMessage() : null;
+                addError(state.getRoundNumber(), playerId, message);
+            }
+        }
+
+        this.moves.add(moveCodes);
+    }
+
+    public static class ErrorEvent {
+
+        public final int round;
+        public final int playerId;
+        public final String message;
+
+        public ErrorEvent(int round, int playerId, String message) {
+            this.round = round;
+            this.playerId = playerId;
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.game.replay;
+
+import io.riddles.javainterface.game.player.PlayerProvider;
+import io.riddles.lightriders.game.LightridersSerializer;
+import io.riddles.lightriders.game.move.MoveType;
+import io.riddles.lightriders.game.player.LightridersPlayer;
+import io.riddles.lightriders.game.processor.LightridersProcessor;
+
+import java.awt.*;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * io.riddles.lightriders.game.replay.LightridersReplayDecoder
+ *
+ * Reads a LightridersReplay written by LightridersReplayEncoder.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersReplayDecoder {
+
+    public LightridersReplay decode(InputStream inputStream) throws IOException {
+        DataInputStream input = new DataInputStream(inputStream);
+
+        if (input.readInt() != LightridersReplayEncoder.MAGIC) {
+            throw new IOException("Not a Lightriders replay");
+        }
+
+        int version = input.readUnsignedByte();
+        if (version != LightridersReplayEncoder.VERSION) {
+            throw new IOException("Unsupported replay version " + version);
+        }
+
+        int width = input.readInt();
+        int height = input.readInt();
+        int maxRounds = input.readInt();
+        String seed = readOptionalUTF(input);
+        int playerCount = input.readUnsignedShort();
+
+        Point[] startCoordinates = new Point[playerCount];
+        MoveType[] startDirections = new MoveType[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            startCoordinates[i] = new Point(input.readInt(), input.readInt());
+            startDirections[i] = MoveType.values()[input.readUnsignedByte()];
+        }
+
+        LightridersReplay replay = new LightridersReplay(width, height, maxRounds, seed,
+                startCoordinates, startDirections);
+
+        int roundCount = input.readInt();
+        readMoves(replay, input, roundCount, playerCount);
+
+        int errorCount = input.readInt();
+        for (int i = 0; i < errorCount; i++) {
+            int round = input.readInt();
+            int playerId = input.readUnsignedShort();
+            replay.addError(round, playerId, readOptionalUTF(input));
+        }
+
+        return replay;
+    }
+
+    /**
+     * Decodes a binary replay and plays it again to rebuild the JSON replay
+     * that LightridersSerializer created for the original game.
+     * @param inputStream Binary replay
+     * @return Played game as JSON
+     * @throws IOException When the replay can't be read
+     */
+    public String decodeToJson(InputStream inputStream) throws IOException {
+        LightridersReplay replay = decode(inputStream);
+
+        PlayerProvider<LightridersPlayer> playerProvider = new PlayerProvider<>();
+        for (int i = 0; i < replay.getPlayerCount(); i++) {
+            playerProvider.add(new LightridersPlayer(i));
+        }
+
+        LightridersProcessor processor = new LightridersProcessor(playerProvider);
+        return new LightridersSerializer().traverseToString(processor, replay.toStates());
+    }
+
+    private String readOptionalUTF(DataInputStream input) throws IOException {
+        if (!input.readBoolean()) {
+            return null;
+        }
+
+        return input.readUTF();
+    }
+
+    private void readMoves(LightridersReplay replay, DataInputStream input,
+                           int roundCount, int playerCount) throws IOException {
+        int bitsPerMove = LightridersReplayEncoder.BITS_PER_MOVE;
+        int mask = (1 << bitsPerMove) - 1;
+        int buffer = 0;
+        int bufferedBits = 0;
+
+        for (int round = 1; round <= roundCount; round++) {
+            byte[] moveCodes = new byte[playerCount];
+
+            for (int i = 0; i < playerCount; i++) {
+                if (bufferedBits < bitsPerMove) {
+                    buffer = (buffer << 8) | input.readUnsignedByte();
+                    bufferedBits += 8;
+                }
+
+                bufferedBits -= bitsPerMove;
+                moveCodes[i] = (byte) ((buffer >>> bufferedBits) & mask);
+                buffer &= (1 << bufferedBits) - 1;
+            }
+
+            replay.addRound(moveCodes);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.game.replay;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.awt.*;
+
+/**
+ * io.riddles.lightriders.game.replay.LightridersReplayEncoder
+ *
+ * Writes a LightridersReplay in the compact binary replay format:
+ *
+ * - magic "LRRP" and format version (1 byte)
+ * - width, height, maxRounds (int), seed (optional UTF), player count (short)
+ * - start x, y (int) and start direction (byte) per player
+ * - round count (int), then 3 bits per player per round with the move code
+ * - error count (int), then round (int), player id (short) and message (optional UTF) per error
+ *
+ * An optional UTF is a byte that is 1 if the string is there, followed
+ * by the string.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersReplayEncoder {
+
+    public static final int MAGIC = 0x4C525250; // LRRP
+    public static final int VERSION = 1;
+    public static final int BITS_PER_MOVE = 3;
+
+    public void encode(LightridersReplay replay, OutputStream outputStream) throws IOException {
+        DataOutputStream output = new DataOutputStream(outputStream);
+        int playerCount = replay.getPlayerCount();
+
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        output.writeInt(replay.getWidth());
+        output.writeInt(replay.getHeight());
+        output.writeInt(replay.getMaxRounds());
+        writeOptionalUTF(replay.getSeed(), output);
+        output.writeShort(playerCount);
+
+        for (int i = 0; i < playerCount; i++) {
+            Point coordinate = replay.getStartCoordinate(i);
+            output.writeInt(coordinate.x);
+            output.writeInt(coordinate.y);
+            output.writeByte(replay.getStartDirection(i).ordinal());
+        }
+
+        output.writeInt(replay.getRoundCount());
+        writeMoves(replay, output);
+
+        output.writeInt(replay.getErrors().size());
+        for (LightridersReplay.ErrorEvent error : replay.getErrors()) {
+            output.writeInt(error.round);
+            output.writeShort(error.playerId);
+            writeOptionalUTF(error.message, output);
+        }
+
+        output.flush();
+    }
+
+    private void writeOptionalUTF(String string, DataOutputStream output) throws IOException {
+        output.writeBoolean(string != null);
+        if (string != null) {
+            output.writeUTF(string);
+        }
+    }
+
+    private void writeMoves(LightridersReplay replay, DataOutputStream output) throws IOException {
+        int buffer = 0;
+        int bufferedBits = 0;
+
+        for (int round = 1; round <= replay.getRoundCount(); round++) {
+            byte[] moveCodes = replay.getMoveCodes(round);
+
+            for (byte moveCode : moveCodes) {
+                buffer = (buffer << BITS_PER_MOVE) | moveCode;
+                bufferedBits += BITS_PER_MOVE;
+
+                if (bufferedBits >= 8) {
+                    bufferedBits -= 8;
+                    output.writeByte(buffer >>> bufferedBits);
+                    buffer &= (1 << bufferedBits) - 1;
+                }
+            }
+        }
+
+        if (bufferedBits > 0) {
+            output.writeByte(buffer << (8 - bufferedBits));
+        }
+    }
+}
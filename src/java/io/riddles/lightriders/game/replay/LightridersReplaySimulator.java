@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.game.replay;
+
+import io.riddles.lightriders.game.board.LightridersBoard;
+import io.riddles.lightriders.game.move.LightridersMove;
+import io.riddles.lightriders.game.move.ReplayedMoveException;
+import io.riddles.lightriders.game.processor.LightridersLogic;
+import io.riddles.lightriders.game.state.LightridersPlayerState;
+import io.riddles.lightriders.game.state.LightridersState;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * io.riddles.lightriders.game.replay.LightridersReplaySimulator
+ *
+ * Plays a recorded game again through LightridersLogic, without any bots.
+ * Used to verify results and recompute statistics after rule changes.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersReplaySimulator {
+
+    /**
+     * @param replay Recorded game
+     * @return Initial state of the replayed game, all other states follow from it
+     */
+    public LightridersState simulate(LightridersReplay replay) {
+        LightridersState initialState = createInitialState(replay);
+        LightridersState state = initialState;
+        List<LightridersReplay.ErrorEvent> errors = replay.getErrors();
+        int errorIndex = 0;
+
+        for (int round = 1; round <= replay.getRoundCount(); round++) {
+            state = state.createNextState(round);
+            byte[] moveCodes = replay.getMoveCodes(round);
+
+            for (LightridersPlayerState playerState : state.getPlayerStates()) {
+                if (!playerState.isAlive()) continue;
+
+                int code = moveCodes[playerState.getPlayerId()];
+                if (code != LightridersReplay.NO_MOVE && code != LightridersReplay.INVALID_MOVE) {
+                    playerState.setMove(LightridersMove.of(LightridersReplay.decodeMoveType(code)));
+                }
+            }
+
+            while (errorIndex < errors.size() && errors.get(errorIndex).round == round) {
+                LightridersReplay.ErrorEvent error = errors.get(errorIndex++);
+                state.getPlayerStates().get(error.playerId).setMove(
+                        new LightridersMove(new ReplayedMoveException(error.message)));
+            }
+
+            LightridersLogic.transform(state);
+        }
+
+        return initialState;
+    }
+
+    /**
+     * @param replay Recorded game
+     * @return Last state of the replayed game
+     */
+    public LightridersState simulateToEnd(LightridersReplay replay) {
+        LightridersState state = simulate(replay);
+
+        while (state.hasNextState()) {
+            state = (LightridersState) state.getNextState();
+        }
+
+        return state;
+    }
+
+    /**
+     * Replays all games on all available cores.
+     * @param replays Recorded games
+     * @return Last state of each game, in the same order
+     */
+    public List<LightridersState> simulateAll(List<LightridersReplay> replays) {
+        return replays.parallelStream()
+                .map(this::simulateToEnd)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param finalState Last state of a game
+     * @return Id of the only player still alive, or null for a draw
+     */
+    public Integer getWinnerId(LightridersState finalState) {
+        ArrayList<Integer> alivePlayerIds = finalState.getAlivePlayerIds();
+
+        if (alivePlayerIds.size() == 1) {
+            return alivePlayerIds.get(0);
+        }
+
+        return null;
+    }
+
+    private LightridersState createInitialState(LightridersReplay replay) {
+        ArrayList<LightridersPlayerState> playerStates = new ArrayList<>();
+        for (int i = 0; i < replay.getPlayerCount(); i++) {
+            playerStates.add(new LightridersPlayerState(i));
+        }
+
+        LightridersBoard board = new LightridersBoard(replay.getWidth(), replay.getHeight());
+        LightridersState initialState = new LightridersState(playerStates, board);
+
+        for (int i = 0; i < replay.getPlayerCount(); i++) {
+            initialState.setPlayerCoordinate(i, new Point(replay.getStartCoordinate(i)));
+            playerStates.get(i).setDirection(replay.getStartDirection(i));
+        }
+
+        return initialState;
+    }
+}
@@ -33,30 +33,56 @@ import io.riddles.lightriders.game.move.MoveType;
  */
 public class LightridersPlayerState extends AbstractPlayerState<LightridersMove> {
 
+    private int x;
+    private int y;
     private Point coordinate;
     private boolean isAlive;
     private MoveType direction;
 
     public LightridersPlayerState(int playerId) {
         super(playerId);
-        this.coordinate = new Point(0, 0);
         this.isAlive = true;
         this.direction = null;
     }
 
     public LightridersPlayerState(LightridersPlayerState playerState) {
         super(playerState.getPlayerId());
-        this.coordinate = new Point(playerState.coordinate);
+        this.x = playerState.x;
+        this.y = playerState.y;
         this.isAlive = playerState.isAlive;
         this.direction = playerState.direction;
     }
 
+    /**
+     * The coordinate is stored as two ints, the Point is only created
+     * when it is asked for. Don't change the returned Point, use
+     * setCoordinate() instead.
+     * @return The coordinate of this player
+     */
     public Point getCoordinate() {
+        if (this.coordinate == null) {
+            this.coordinate = new Point(this.x, this.y);
+        }
+
         return this.coordinate;
     }
 
     public void setCoordinate(Point coordinate) {
-        this.coordinate = coordinate;
+        setCoordinate(coordinate.x, coordinate.y);
+    }
+
+    public void setCoordinate(int x, int y) {
+        this.x = x;
+        this.y = y;
+        this.coordinate = null;
+    }
+
+    public int getX() {
+        return this.x;
+    }
+
+    public int getY() {
+        return this.y;
     }
 
     public boolean isAlive() {
@@ -74,4 +100,8 @@ public class LightridersPlayerState extends AbstractPlayerState<LightridersMove>
     public void kill() {
         this.isAlive = false;
     }
+
+    public void setAlive(boolean isAlive) {
+        this.isAlive = isAlive;
+    }
 }
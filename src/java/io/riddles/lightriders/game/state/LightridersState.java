@@ -20,6 +20,8 @@
 package io.riddles.lightriders.game.state;
 
 import io.riddles.lightriders.game.board.LightridersBoard;
+import io.riddles.lightriders.game.board.LightridersBoardDelta;
+import io.riddles.lightriders.game.board.LightridersBoardHistory;
 import io.riddles.javainterface.game.state.AbstractState;
 
 import java.awt.*;
@@ -28,13 +30,23 @@ import java.util.ArrayList;
 /**
  * io.riddles.lightriders.game.state.LightridersState
  *
- * [description]
+ * Only the latest state of a game holds a full board. When a next state
+ * takes over the board, the cells changed during the previous round are
+ * stored in a LightridersBoardHistory shared by all states of the game,
+ * so older boards can be rebuilt when they are asked for. The history
+ * keeps a keyframe every K rounds, so the board of any round is rebuilt
+ * from at most K rounds of changes. The board of an older state is a
+ * read-only copy, use getBoardAtRound() or copy it to make changes.
  *
  * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
  */
 public class LightridersState extends AbstractState<LightridersPlayerState> {
 
     private LightridersBoard board;
+    private LightridersBoardHistory history;
+    private int historyIndex;
+    private boolean inHistory;
+    private int keyframeInterval;
 //    private HashMap<LightridersPlayer, Boolean> playerAlive;
 //    private HashMap<LightridersPlayer, Point> playerCoordinates;
 
@@ -42,15 +54,23 @@ public class LightridersState extends AbstractState<LightridersPlayerState> {
     public LightridersState(ArrayList<LightridersPlayerState> playerStates, LightridersBoard board) {
         super(null, playerStates, 0);
         this.board = board;
+        this.history = null;
+        this.historyIndex = 0;
+        this.inHistory = true;
+        this.keyframeInterval = LightridersBoardHistory.DEFAULT_KEYFRAME_INTERVAL;
     }
 
     public LightridersState(LightridersState previousState, ArrayList<LightridersPlayerState> playerStates, int roundNumber) {
         super(previousState, playerStates, roundNumber);
-        this.board = new LightridersBoard(previousState.getBoard());
+        this.board = null; // Created from the previous state when first needed
+        this.history = null;
+        this.historyIndex = previousState.historyIndex + 1;
+        this.inHistory = false;
+        this.keyframeInterval = previousState.keyframeInterval;
     }
 
     public LightridersState createNextState(int roundNumber) {
-        ArrayList<LightridersPlayerState> playerStates = new ArrayList<>();
+        ArrayList<LightridersPlayerState> playerStates = new ArrayList<>(this.getPlayerStates().size());
         for (LightridersPlayerState playerState : this.getPlayerStates()) {
             playerStates.add(new LightridersPlayerState(playerState));
         }
@@ -59,7 +79,7 @@ public class LightridersState extends AbstractState<LightridersPlayerState> {
     }
 
     public void setPlayerCoordinate(int playerId, Point coordinate) {
-        this.board.setFieldAt(coordinate, playerId + "");
+        getBoard().setPlayerAt(coordinate, playerId);
         this.getPlayerStates().get(playerId).setCoordinate(coordinate);
     }
 
@@ -75,7 +95,123 @@ public class LightridersState extends AbstractState<LightridersPlayerState> {
         return alivePlayerIds;
     }
 
+    /**
+     * @return The board of this state, read-only if this state is in the
+     * history and a later state has taken over the board
+     */
     public LightridersBoard getBoard() {
+        if (this.board != null) {
+            return this.board;
+        }
+
+        if (this.inHistory) {
+            return this.history.getBoard(this.historyIndex);
+        }
+
+        LightridersState previousState = (LightridersState) getPreviousState();
+        if (previousState.board != null && previousState.inHistory) {
+            takeOverBoard(previousState);
+        } else {
+            // Branching off a state that is not the latest, use a separate board
+            this.board = new LightridersBoard(previousState.getBoard());
+        }
+
         return this.board;
     }
+
+    /**
+     * Sets the amount of rounds between keyframes for this game. Must be
+     * set on the initial state, before a next state takes over the board.
+     * @param keyframeInterval Amount of rounds between keyframes
+     */
+    public void setKeyframeInterval(int keyframeInterval) {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("Keyframe interval must be at least 1");
+        }
+
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    public int getKeyframeInterval() {
+        return this.keyframeInterval;
+    }
+
+    /**
+     * @return All non-empty cells of the board if this state's round is a
+     * keyframe, null otherwise
+     */
+    public LightridersBoardDelta getKeyframe() {
+        if (this.historyIndex % this.keyframeInterval != 0) {
+            return null;
+        }
+        if (this.inHistory && this.board == null) {
+            return this.history.getKeyframe(this.historyIndex);
+        }
+
+        return getBoard().snapshot();
+    }
+
+    /**
+     * Rebuilds the board of an earlier round of this game from the nearest
+     * keyframe, without walking through the states in between.
+     * @param roundNumber Round to get the board of, at most this state's round
+     * @return A new board that is not shared with any state
+     */
+    public LightridersBoard getBoardAtRound(int roundNumber) {
+        int index = this.historyIndex - (getRoundNumber() - roundNumber);
+
+        if (index > this.historyIndex || index < 0) {
+            throw new IllegalArgumentException("No board stored for round " + roundNumber);
+        }
+        if (index == this.historyIndex && this.board != null) {
+            return new LightridersBoard(this.board);
+        }
+        if (this.inHistory && this.history != null) {
+            return this.history.rebuild(index);
+        }
+
+        // Not part of the history, for example a state branched off an older one
+        LightridersState state = this;
+        while (state.historyIndex > index) {
+            state = (LightridersState) state.getPreviousState();
+        }
+
+        return new LightridersBoard(state.getBoard());
+    }
+
+    /**
+     * @return The cells changed on the board in this state's round, or null
+     * if they are not known, for example for the initial state
+     */
+    public LightridersBoardDelta getRoundChanges() {
+        if (!this.inHistory || this.historyIndex == 0) {
+            return null;
+        }
+        if (this.board != null) {
+            return this.board.getChanges();
+        }
+
+        return this.history.getDelta(this.historyIndex);
+    }
+
+    /**
+     * Moves the full board from the previous state to this one and stores
+     * the cells the previous state changed in the history.
+     */
+    private void takeOverBoard(LightridersState previousState) {
+        LightridersBoard board = previousState.board;
+        LightridersBoardDelta changes = board.stopRecording();
+
+        if (previousState.history == null) {
+            previousState.history = new LightridersBoardHistory(board, previousState.keyframeInterval);
+        } else {
+            previousState.history.addDelta(changes);
+        }
+
+        this.history = previousState.history;
+        this.inHistory = true;
+        this.board = board;
+        this.board.startRecording();
+        previousState.board = null;
+    }
 }
@@ -22,30 +22,69 @@ package io.riddles.lightriders.game.state;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
+import java.awt.*;
 import java.util.ArrayList;
 
+import io.riddles.lightriders.engine.LightridersEngine;
+import io.riddles.lightriders.game.board.LightridersBoard;
+import io.riddles.lightriders.game.move.LightridersMove;
+import io.riddles.lightriders.game.move.MoveType;
+import io.riddles.lightriders.game.move.ReplayedMoveException;
 import io.riddles.lightriders.game.player.LightridersPlayer;
+import io.riddles.lightriders.game.processor.LightridersLogic;
 import io.riddles.javainterface.game.state.AbstractStateDeserializer;
 
 /**
  * io.riddles.lightriders.game.state.LightridersStateDeserializer
  *
- * [description]
+ * Rebuilds the states of a game from the output of LightridersSerializer
+ * or LightridersStateSerializer. The JSON only stores the player positions,
+ * so the move of each player is derived from its position change and the
+ * round is played again through LightridersLogic. The result is checked
+ * against the stored positions, so this also verifies a recorded game.
  *
  * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
  */
 public class LightridersStateDeserializer extends
         AbstractStateDeserializer<LightridersPlayer, LightridersState> {
 
+    private int width;
+    private int height;
+
     public LightridersStateDeserializer(ArrayList<LightridersPlayer> players) {
+        this(players, -1, -1);
+    }
+
+    /**
+     * @param players Players of the game
+     * @param width Field width, needed when the input has no settings
+     * @param height Field height, needed when the input has no settings
+     */
+    public LightridersStateDeserializer(ArrayList<LightridersPlayer> players, int width, int height) {
         super(players);
+        this.width = width;
+        this.height = height;
     }
 
+    /**
+     * @param statesString A played game, an array of states or a single state
+     * @return The last state, earlier states can be reached with getPreviousState()
+     * @throws JSONException When the input can't be parsed or doesn't match the game rules
+     */
     @Override
     public LightridersState traverse(String statesString) throws JSONException {
         LightridersState state = null;
-        Object states = new JSONObject(statesString);
+        Object states = new JSONTokener(statesString).nextValue();
+
+        if (states instanceof JSONObject && ((JSONObject) states).has("states")) {
+            JSONObject game = (JSONObject) states;
+            JSONObject field = game.getJSONObject("settings").getJSONObject("field");
+            this.width = field.getInt("width");
+            this.height = field.getInt("height");
+            states = game.getJSONArray("states");
+        }
 
         if (states instanceof JSONArray) {
             JSONArray statesJson = (JSONArray) states;
@@ -63,10 +102,107 @@ public class LightridersStateDeserializer extends
         return state;
     }
 
+    /**
+     * @param playedGame Output of LightridersSerializer
+     * @return The initial state of the game
+     * @throws JSONException When the input can't be parsed or doesn't match the game rules
+     */
+    public LightridersState traverseToInitialState(String playedGame) throws JSONException {
+        LightridersState state = traverse(playedGame);
+
+        while (state.getPreviousState() != null) {
+            state = (LightridersState) state.getPreviousState();
+        }
+
+        return state;
+    }
+
     private LightridersState visitState(JSONObject stateJson,
                                         LightridersState previousState) throws JSONException {
         int roundNumber = stateJson.getInt("round");
-        return null;
+        JSONArray playersJson = stateJson.getJSONArray("players");
+
+        if (previousState == null) {
+            return visitInitialState(playersJson);
+        }
+
+        LightridersState state = previousState.createNextState(roundNumber);
+
+        for (int i = 0; i < playersJson.length(); i++) {
+            JSONObject playerJson = playersJson.getJSONObject(i);
+            LightridersPlayerState playerState = state.getPlayerStates().get(playerJson.getInt("id"));
+
+            if (!playerState.isAlive()) continue;
+
+            Point position = visitPoint(playerJson.getJSONObject("position"));
+            LightridersMove move = new LightridersMove(
+                    visitMoveType(playerState.getCoordinate(), position, roundNumber));
+
+            if (!playerJson.isNull("error")) {
+                move.setException(new ReplayedMoveException(playerJson.getString("error")));
+            }
+
+            playerState.setMove(move);
+        }
+
+        LightridersLogic.transform(state);
+        verifyState(state, playersJson);
+
+        return state;
+    }
+
+    private LightridersState visitInitialState(JSONArray playersJson) throws JSONException {
+        if (this.width <= 0 || this.height <= 0) {
+            throw new JSONException("Field size is unknown");
+        }
+
+        ArrayList<LightridersPlayerState> playerStates = new ArrayList<>();
+        for (int i = 0; i < playersJson.length(); i++) {
+            playerStates.add(new LightridersPlayerState(i));
+        }
+
+        LightridersState state = new LightridersState(playerStates, new LightridersBoard(this.width, this.height));
+
+        for (int i = 0; i < playersJson.length(); i++) {
+            JSONObject playerJson = playersJson.getJSONObject(i);
+            int playerId = playerJson.getInt("id");
+            Point position = visitPoint(playerJson.getJSONObject("position"));
+
+            state.setPlayerCoordinate(playerId, position);
+            playerStates.get(playerId).setDirection(LightridersEngine.getStartDirection(
+                    position, this.width, this.height, playersJson.length()));
+        }
+
+        return state;
+    }
+
+    private MoveType visitMoveType(Point from, Point to, int roundNumber) throws JSONException {
+        int dx = to.x - from.x;
+        int dy = to.y - from.y;
+
+        if (dx == 0 && dy == -1) return MoveType.UP;
+        if (dx == 0 && dy == 1) return MoveType.DOWN;
+        if (dx == -1 && dy == 0) return MoveType.LEFT;
+        if (dx == 1 && dy == 0) return MoveType.RIGHT;
+
+        throw new JSONException("Invalid position change in round " + roundNumber);
     }
 
+    private void verifyState(LightridersState state, JSONArray playersJson) throws JSONException {
+        for (int i = 0; i < playersJson.length(); i++) {
+            JSONObject playerJson = playersJson.getJSONObject(i);
+            LightridersPlayerState playerState = state.getPlayerStates().get(playerJson.getInt("id"));
+            Point position = visitPoint(playerJson.getJSONObject("position"));
+
+            if (!playerState.getCoordinate().equals(position)
+                    || playerState.isAlive() == playerJson.getBoolean("isCrashed")) {
+                throw new JSONException(String.format("Player %d doesn't match the game rules in round %d",
+                        playerState.getPlayerId(), state.getRoundNumber()));
+            }
+        }
+    }
+
+    private Point visitPoint(JSONObject pointJson) throws JSONException {
+        return new Point(pointJson.getInt("x"), pointJson.getInt("y"));
+    }
 }
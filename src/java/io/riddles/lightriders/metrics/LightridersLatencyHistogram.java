@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.metrics;
+
+import org.json.JSONObject;
+
+/**
+ * io.riddles.lightriders.metrics.LightridersLatencyHistogram
+ *
+ * Histogram of latencies in microseconds. Every power of two is split in
+ * 8 buckets, so percentiles are accurate within about 12% with a fixed
+ * amount of memory, however long the match takes.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersLatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private long[] counts;
+    private long count;
+    private long totalMicros;
+    private long maxMicros;
+
+    public LightridersLatencyHistogram() {
+        this.counts = new long[BUCKETS];
+    }
+
+    public synchronized void record(long nanos) {
+        long micros = Math.max(nanos / 1000, 0);
+
+        this.counts[bucket(micros)]++;
+        this.count++;
+        this.totalMicros += micros;
+        this.maxMicros = Math.max(this.maxMicros, micros);
+    }
+
+    public synchronized long getCount() {
+        return this.count;
+    }
+
+    public synchronized long getMeanMicros() {
+        return this.count > 0 ? this.totalMicros / this.count : 0;
+    }
+
+    public synchronized long getMaxMicros() {
+        return this.maxMicros;
+    }
+
+    /**
+     * @param percentile Percentile between 0 and 100
+     * @return Upper bound of the bucket the percentile falls in
+     */
+    public synchronized long getPercentileMicros(double percentile) {
+        if (this.count == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(this.count * percentile / 100.0);
+        long seen = 0;
+
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += this.counts[bucket];
+
+            if (seen >= Math.max(rank, 1)) {
+                return Math.min(upperBound(bucket), this.maxMicros);
+            }
+        }
+
+        return this.maxMicros;
+    }
+
+    public synchronized JSONObject toJson() {
+        JSONObject json = new JSONObject();
+
+        json.put("count", this.count);
+        json.put("meanMs", toMillis(getMeanMicros()));
+        json.put("p50Ms", toMillis(getPercentileMicros(50)));
+        json.put("p90Ms", toMillis(getPercentileMicros(90)));
+        json.put("p99Ms", toMillis(getPercentileMicros(99)));
+        json.put("maxMs", toMillis(this.maxMicros));
+
+        return json;
+    }
+
+    static double toMillis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (micros >>> shift) & (SUB_BUCKETS - 1);
+
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        long lowerBound = (long) (SUB_BUCKETS + subBucket) << shift;
+
+        return lowerBound + (1L << shift) - 1;
+    }
+}
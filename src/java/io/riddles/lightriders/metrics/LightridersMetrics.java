@@ -0,0 +1,272 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.metrics;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * io.riddles.lightriders.metrics.LightridersMetrics
+ *
+ * Timings and totals of one match: the latency of every move request per
+ * bot, the bytes sent to each bot, the time spent on the game logic, board
+ * copies and serialization, and the allocations and garbage collections
+ * during the match. Bots can be timed from any thread.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersMetrics implements LightridersMetricsMXBean {
+
+    private AtomicInteger rounds;
+    private AtomicLong transformNanos;
+    private AtomicLong boardCopyNanos;
+    private AtomicLong serializationNanos;
+    private AtomicLong setupNanos;
+    private AtomicLong runNanos;
+    private ConcurrentSkipListMap<Integer, BotMetrics> bots;
+
+    private Thread matchThread;
+    private long startAllocatedBytes;
+    private long startGcCount;
+    private long startGcMillis;
+
+    public LightridersMetrics() {
+        this.rounds = new AtomicInteger();
+        this.transformNanos = new AtomicLong();
+        this.boardCopyNanos = new AtomicLong();
+        this.serializationNanos = new AtomicLong();
+        this.setupNanos = new AtomicLong();
+        this.runNanos = new AtomicLong();
+        this.bots = new ConcurrentSkipListMap<>();
+        this.startAllocatedBytes = -1;
+    }
+
+    /**
+     * Starts counting allocations of the calling thread and garbage
+     * collections of the JVM from now on.
+     */
+    public void startMatch() {
+        this.matchThread = Thread.currentThread();
+        this.startAllocatedBytes = getThreadAllocatedBytes(this.matchThread);
+        this.startGcCount = getTotalGcCount();
+        this.startGcMillis = getTotalGcMillis();
+    }
+
+    public void addRound() {
+        this.rounds.incrementAndGet();
+    }
+
+    public void addSetupTime(long nanos) {
+        this.setupNanos.addAndGet(nanos);
+    }
+
+    public void addRunTime(long nanos) {
+        this.runNanos.addAndGet(nanos);
+    }
+
+    public void addTransformTime(long nanos) {
+        this.transformNanos.addAndGet(nanos);
+    }
+
+    public void addBoardCopyTime(long nanos) {
+        this.boardCopyNanos.addAndGet(nanos);
+    }
+
+    public void addSerializationTime(long nanos) {
+        this.serializationNanos.addAndGet(nanos);
+    }
+
+    public void addMoveLatency(int botId, long nanos) {
+        getBot(botId).moveLatency.record(nanos);
+    }
+
+    public void addBytesSent(int botId, long bytes) {
+        getBot(botId).bytesSent.addAndGet(bytes);
+    }
+
+    @Override
+    public int getRounds() {
+        return this.rounds.get();
+    }
+
+    @Override
+    public long getSetupMillis() {
+        return this.setupNanos.get() / 1000000;
+    }
+
+    @Override
+    public long getRunMillis() {
+        return this.runNanos.get() / 1000000;
+    }
+
+    @Override
+    public long getTransformMicros() {
+        return this.transformNanos.get() / 1000;
+    }
+
+    @Override
+    public long getBoardCopyMicros() {
+        return this.boardCopyNanos.get() / 1000;
+    }
+
+    @Override
+    public long getSerializationMicros() {
+        return this.serializationNanos.get() / 1000;
+    }
+
+    /**
+     * @return Bytes allocated by the thread that started the match, or -1 if unknown
+     */
+    @Override
+    public long getAllocatedBytes() {
+        if (this.matchThread == null || this.startAllocatedBytes < 0) {
+            return -1;
+        }
+
+        long allocatedBytes = getThreadAllocatedBytes(this.matchThread);
+        return allocatedBytes < 0 ? -1 : allocatedBytes - this.startAllocatedBytes;
+    }
+
+    @Override
+    public long getGcCount() {
+        return this.matchThread != null ? getTotalGcCount() - this.startGcCount : 0;
+    }
+
+    @Override
+    public long getGcMillis() {
+        return this.matchThread != null ? getTotalGcMillis() - this.startGcMillis : 0;
+    }
+
+    @Override
+    public long getMoveCount() {
+        long moveCount = 0;
+        for (BotMetrics bot : this.bots.values()) {
+            moveCount += bot.moveLatency.getCount();
+        }
+
+        return moveCount;
+    }
+
+    @Override
+    public long getBytesSent() {
+        long bytesSent = 0;
+        for (BotMetrics bot : this.bots.values()) {
+            bytesSent += bot.bytesSent.get();
+        }
+
+        return bytesSent;
+    }
+
+    @Override
+    public long getMaxMoveLatencyMicros() {
+        long maxLatency = 0;
+        for (BotMetrics bot : this.bots.values()) {
+            maxLatency = Math.max(maxLatency, bot.moveLatency.getMaxMicros());
+        }
+
+        return maxLatency;
+    }
+
+    public LightridersLatencyHistogram getMoveLatency(int botId) {
+        return getBot(botId).moveLatency;
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+
+        json.put("rounds", getRounds());
+        json.put("setupMs", toMillis(this.setupNanos.get()));
+        json.put("runMs", toMillis(this.runNanos.get()));
+        json.put("transformMs", toMillis(this.transformNanos.get()));
+        json.put("boardCopyMs", toMillis(this.boardCopyNanos.get()));
+        json.put("serializationMs", toMillis(this.serializationNanos.get()));
+        json.put("allocatedBytes", getAllocatedBytes());
+        json.put("gcCount", getGcCount());
+        json.put("gcMs", getGcMillis());
+
+        JSONArray bots = new JSONArray();
+        for (Map.Entry<Integer, BotMetrics> entry : this.bots.entrySet()) {
+            JSONObject bot = new JSONObject();
+            bot.put("id", entry.getKey());
+            bot.put("bytesSent", entry.getValue().bytesSent.get());
+            bot.put("moveLatency", entry.getValue().moveLatency.toJson());
+            bots.put(bot);
+        }
+        json.put("bots", bots);
+
+        return json;
+    }
+
+    private BotMetrics getBot(int botId) {
+        BotMetrics bot = this.bots.get(botId);
+
+        if (bot == null) {
+            bot = this.bots.computeIfAbsent(botId, id -> new BotMetrics());
+        }
+
+        return bot;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1000 / 1000.0;
+    }
+
+    private static long getThreadAllocatedBytes(Thread thread) {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+
+        return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(thread.getId());
+    }
+
+    private static long getTotalGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gcBean.getCollectionCount(), 0);
+        }
+
+        return count;
+    }
+
+    private static long getTotalGcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(gcBean.getCollectionTime(), 0);
+        }
+
+        return millis;
+    }
+
+    private static class BotMetrics {
+
+        private final LightridersLatencyHistogram moveLatency = new LightridersLatencyHistogram();
+        private final AtomicLong bytesSent = new AtomicLong();
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.search;
+
+import io.riddles.lightriders.game.board.LightridersBoard;
+import io.riddles.lightriders.game.move.LightridersMove;
+import io.riddles.lightriders.game.move.MoveType;
+import io.riddles.lightriders.game.processor.LightridersLogic;
+import io.riddles.lightriders.game.state.LightridersPlayerState;
+import io.riddles.lightriders.game.state.LightridersState;
+
+import java.util.ArrayList;
+
+/**
+ * io.riddles.lightriders.search.LightridersSearchState
+ *
+ * A position that can be played forward and back again without copying
+ * the board, for game tree search and move analysis. Joint moves are
+ * applied with the same LightridersLogic as a real match, and each one
+ * returns an undo record that takes it back in O(players). Moves must be
+ * undone in the opposite order they were made.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersSearchState {
+
+    private LightridersBoard board;
+    private ArrayList<LightridersPlayerState> playerStates;
+    private int roundNumber;
+
+    /**
+     * Copies the board and players of the given state once, the state
+     * itself is never changed.
+     * @param state Position to search from
+     */
+    public LightridersSearchState(LightridersState state) {
+        this.board = new LightridersBoard(state.getBoard());
+        this.playerStates = new ArrayList<>(state.getPlayerStates().size());
+        this.roundNumber = state.getRoundNumber();
+
+        for (LightridersPlayerState playerState : state.getPlayerStates()) {
+            this.playerStates.add(new LightridersPlayerState(playerState));
+        }
+    }
+
+    /**
+     * Plays one round.
+     * @param moves Move of each player by id, null keeps the current direction
+     * @return Record to undo the round with
+     */
+    public LightridersUndoRecord makeMove(MoveType[] moves) {
+        LightridersUndoRecord undo = new LightridersUndoRecord(this.playerStates.size());
+        makeMove(moves, undo);
+
+        return undo;
+    }
+
+    /**
+     * Plays one round without allocating, storing what is needed to undo
+     * it in the given record.
+     * @param moves Move of each player by id, null keeps the current direction
+     * @param undo Record to overwrite, must not hold a round that isn't undone yet
+     */
+    public void makeMove(MoveType[] moves, LightridersUndoRecord undo) {
+        int playerCount = this.playerStates.size();
+
+        if (moves.length != playerCount || undo.getPlayerCount() != playerCount) {
+            throw new IllegalArgumentException("Expected moves and undo record for " + playerCount + " players");
+        }
+
+        for (int id = 0; id < playerCount; id++) {
+            LightridersPlayerState playerState = this.playerStates.get(id);
+
+            undo.x[id] = playerState.getX();
+            undo.y[id] = playerState.getY();
+            undo.directions[id] = playerState.getDirection();
+            undo.moves[id] = playerState.getMove();
+            undo.alive[id] = playerState.isAlive();
+
+            MoveType moveType = moves[id] != null ? moves[id] : MoveType.PASS;
+            playerState.setMove(LightridersMove.of(moveType));
+        }
+
+        this.roundNumber++;
+
+        undo.cells.clear();
+        this.board.startUndoLog(undo.cells);
+        try {
+            LightridersLogic.transform(this.board, this.playerStates, this.roundNumber);
+        } finally {
+            this.board.stopUndoLog();
+        }
+
+        undo.isUsed = true;
+    }
+
+    /**
+     * Takes back the round stored in the record.
+     * @param undo Record returned by or filled by the last makeMove()
+     */
+    public void unmakeMove(LightridersUndoRecord undo) {
+        if (!undo.isUsed) {
+            throw new IllegalStateException("Undo record holds no round");
+        }
+
+        this.board.undo(undo.cells);
+
+        for (int id = 0; id < this.playerStates.size(); id++) {
+            LightridersPlayerState playerState = this.playerStates.get(id);
+
+            playerState.setCoordinate(undo.x[id], undo.y[id]);
+            playerState.setDirection(undo.directions[id]);
+            playerState.setMove(undo.moves[id]);
+            playerState.setAlive(undo.alive[id]);
+        }
+
+        this.roundNumber--;
+        undo.isUsed = false;
+    }
+
+    public LightridersBoard getBoard() {
+        return this.board;
+    }
+
+    public LightridersPlayerState getPlayerState(int playerId) {
+        return this.playerStates.get(playerId);
+    }
+
+    public int getPlayerCount() {
+        return this.playerStates.size();
+    }
+
+    public int getRoundNumber() {
+        return this.roundNumber;
+    }
+
+    public int getAliveCount() {
+        int aliveCount = 0;
+        for (int i = 0; i < this.playerStates.size(); i++) {
+            if (this.playerStates.get(i).isAlive()) {
+                aliveCount++;
+            }
+        }
+
+        return aliveCount;
+    }
+
+    /**
+     * @return Whether at most one player is still alive
+     */
+    public boolean isFinished() {
+        return getAliveCount() <= 1;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.search;
+
+import io.riddles.lightriders.game.board.LightridersBoardDelta;
+import io.riddles.lightriders.game.move.LightridersMove;
+import io.riddles.lightriders.game.move.MoveType;
+
+/**
+ * io.riddles.lightriders.search.LightridersUndoRecord
+ *
+ * Everything needed to take back one joint move on a LightridersSearchState:
+ * the previous position, direction, move and status of every player and
+ * the previous value of every cell that changed. Can be reused for any
+ * amount of moves, so a search can keep one record per depth.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersUndoRecord {
+
+    int[] x;
+    int[] y;
+    MoveType[] directions;
+    LightridersMove[] moves;
+    boolean[] alive;
+    LightridersBoardDelta cells;
+    boolean isUsed;
+
+    public LightridersUndoRecord(int playerCount) {
+        this.x = new int[playerCount];
+        this.y = new int[playerCount];
+        this.directions = new MoveType[playerCount];
+        this.moves = new LightridersMove[playerCount];
+        this.alive = new boolean[playerCount];
+        this.cells = new LightridersBoardDelta(playerCount * 2);
+        this.isUsed = false;
+    }
+
+    public int getPlayerCount() {
+        return this.x.length;
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.server;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * io.riddles.lightriders.server.LightridersBotConnection
+ *
+ * The pipes of one bot process. The output of the bot is read by the
+ * shared LightridersBotIO loop, which also ends requests at their deadline
+ * and records when the response arrived. Messages go through a bounded
+ * queue to a writer thread of their own, because a write blocks as long
+ * as the bot doesn't read its input, so the thread playing the match
+ * never waits for a bot. Every message has a deadline, and the loop fails
+ * the connection when a message hasn't been taken in by then, whether or
+ * not the write ever returns. Killing the bot ends the write, unless a
+ * child process of the bot still holds the input open; the writer thread
+ * then stays blocked until that child exits, but nothing waits for it.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersBotConnection implements Closeable {
+
+    public static final long DEFAULT_WRITE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final int WRITE_QUEUE_SIZE = 64;
+    private static final long NOT_WRITING = Long.MIN_VALUE;
+    private static final Write END_OF_INPUT = new Write(null, NOT_WRITING);
+
+    private LightridersBotIO io;
+    private Process process;
+    private BufferedWriter input;
+    private InputStream output;
+    private InputStream errors;
+    private ByteArrayOutputStream line;
+    private AtomicReference<Request> pending;
+    private BlockingQueue<Write> writes;
+    private volatile boolean closed;
+    private volatile long writeDeadline;
+    private long lastResponseNanos;
+    private int matchCount;
+
+    LightridersBotConnection(LightridersBotIO io, Process process) {
+        this.io = io;
+        this.process = process;
+        this.input = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        this.output = process.getInputStream();
+        this.errors = process.getErrorStream();
+        this.line = new ByteArrayOutputStream();
+        this.pending = new AtomicReference<>();
+        this.writes = new ArrayBlockingQueue<>(WRITE_QUEUE_SIZE);
+        this.writeDeadline = NOT_WRITING;
+
+        Thread writer = new Thread(this::writeToBot, "lightriders-bot-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Sends a message without waiting for a response or for the bot to
+     * read it. A bot that hasn't read the message within
+     * DEFAULT_WRITE_TIMEOUT_NANOS is killed.
+     * @param message Message without line break
+     * @return False if the bot has stopped
+     */
+    public boolean send(String message) {
+        return send(message, DEFAULT_WRITE_TIMEOUT_NANOS);
+    }
+
+    /**
+     * Sends a message without waiting for a response or for the bot to read it.
+     * @param message Message without line break
+     * @param timeoutNanos Time the bot has to read the message before it is killed
+     * @return False if the bot has stopped
+     */
+    public boolean send(String message, long timeoutNanos) {
+        if (this.closed) {
+            return false;
+        }
+
+        if (!this.writes.offer(new Write(message, System.nanoTime() + timeoutNanos))) {
+            // The bot stopped reading long ago, its earlier messages are past their deadline too
+            close();
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Sends a message and waits for the next line the bot outputs. Lines
+     * the bot outputs while nothing is requested are dropped.
+     * @param message Message without line break, null to only wait for the next line
+     * @param timeoutNanos Time the bot has to respond
+     * @return The response, or null if the bot didn't respond in time or has stopped
+     */
+    public String request(String message, long timeoutNanos) {
+        long start = System.nanoTime();
+        Request request = new Request(start + timeoutNanos);
+
+        this.pending.set(request);
+        if (this.closed) {
+            // The loop may already have stopped reading from this bot
+            this.pending.compareAndSet(request, null);
+            return null;
+        }
+
+        if (message != null) {
+            send(message, timeoutNanos);
+        }
+        this.io.wakeUp();
+
+        String response;
+        try {
+            // The loop ends the request at its deadline, the timeout only guards against a stopped loop
+            response = request.future.get(timeoutNanos + TimeUnit.SECONDS.toNanos(1), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            response = null;
+        } catch (ExecutionException | TimeoutException ex) {
+            response = null;
+        }
+
+        this.pending.compareAndSet(request, null);
+        this.lastResponseNanos = (response != null ? request.respondedAt : System.nanoTime()) - start;
+
+        return response;
+    }
+
+    /**
+     * @return Time between sending the last request and its response,
+     * or until it was given up on
+     */
+    public long getLastResponseNanos() {
+        return this.lastResponseNanos;
+    }
+
+    /**
+     * @return The amount of matches this bot process was used for
+     */
+    public int getMatchCount() {
+        return this.matchCount;
+    }
+
+    void addMatch() {
+        this.matchCount++;
+    }
+
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        this.writes.clear();
+        this.writes.offer(END_OF_INPUT);
+
+        // Killing the process also closes its input, which waits for a blocked write to end
+        Thread killer = new Thread(this.process::destroyForcibly, "lightriders-bot-kill");
+        killer.setDaemon(true);
+        killer.start();
+        this.io.wakeUp();
+    }
+
+    /**
+     * Reads what the bot has written so far, without blocking. Called
+     * from the I/O loop only.
+     * @param buffer Buffer shared by all connections of the loop
+     * @param now Current time
+     * @return True if anything was read or a request was ended
+     */
+    boolean poll(byte[] buffer, long now) {
+        boolean progress = false;
+        // Checked before reading, so all output of a stopped bot is read below
+        boolean alive = this.process.isAlive();
+
+        try {
+            int available;
+            while ((available = this.output.available()) > 0) {
+                int read = this.output.read(buffer, 0, Math.min(available, READ_BUFFER_SIZE));
+                if (read <= 0) break;
+
+                readLines(buffer, read, System.nanoTime());
+                progress = true;
+            }
+
+            // Bots write debug output on stderr, which has to be drained so they don't block
+            while ((available = this.errors.available()) > 0) {
+                if (this.errors.read(buffer, 0, Math.min(available, READ_BUFFER_SIZE)) <= 0) break;
+                progress = true;
+            }
+        } catch (IOException ex) {
+            this.closed = true;
+        }
+
+        if (!alive) {
+            this.closed = true;
+        }
+
+        boolean writeTimedOut = isPastDeadline(this.writeDeadline, now)
+                || isPastDeadline(queuedWriteDeadline(), now);
+        if (writeTimedOut && !this.closed) {
+            // Kills the bot, which normally ends the blocked write with a broken pipe
+            close();
+            progress = true;
+        }
+
+        Request request = this.pending.get();
+        if (request != null && (this.closed || now - request.deadline >= 0)) {
+            progress |= request.future.complete(null);
+            this.pending.compareAndSet(request, null);
+        }
+
+        return progress;
+    }
+
+    boolean hasPendingRequest() {
+        return this.pending.get() != null;
+    }
+
+    boolean isWriting() {
+        return this.writeDeadline != NOT_WRITING || !this.writes.isEmpty();
+    }
+
+    private long queuedWriteDeadline() {
+        Write write = this.writes.peek();
+        return write != null ? write.deadline : NOT_WRITING;
+    }
+
+    private static boolean isPastDeadline(long deadline, long now) {
+        return deadline != NOT_WRITING && now - deadline >= 0;
+    }
+
+    private void writeToBot() {
+        try {
+            while (true) {
+                Write write = this.writes.take();
+                if (write == END_OF_INPUT) break;
+
+                this.writeDeadline = write.deadline;
+                this.input.write(write.message);
+                this.input.newLine();
+                this.input.flush();
+                this.writeDeadline = NOT_WRITING;
+            }
+        } catch (IOException ex) {
+            // The bot has crashed or was killed by the loop, its requests will time out
+            this.closed = true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.writeDeadline = NOT_WRITING;
+        }
+    }
+
+    private void readLines(byte[] buffer, int length, long now) {
+        for (int i = 0; i < length; i++) {
+            if (buffer[i] != '\n') {
+                this.line.write(buffer[i]);
+                continue;
+            }
+
+            String text = new String(this.line.toByteArray(), StandardCharsets.UTF_8).trim();
+            this.line.reset();
+
+            Request request = this.pending.get();
+            if (!text.isEmpty() && request != null && now - request.deadline < 0) {
+                request.respondedAt = now;
+                request.future.complete(text);
+                this.pending.compareAndSet(request, null);
+            }
+        }
+    }
+
+    private static class Write {
+
+        private final String message;
+        private final long deadline;
+
+        Write(String message, long deadline) {
+            this.message = message;
+            this.deadline = deadline;
+        }
+    }
+
+    private static class Request {
+
+        private final long deadline;
+        private final CompletableFuture<String> future;
+        private volatile long respondedAt;
+
+        Request(long deadline) {
+            this.deadline = deadline;
+            this.future = new CompletableFuture<>();
+        }
+    }
+}
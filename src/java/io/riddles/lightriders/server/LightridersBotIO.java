@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.server;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * io.riddles.lightriders.server.LightridersBotIO
+ *
+ * One thread that reads the output of all bot processes of the engine,
+ * instead of a reader thread per pipe. Process pipes can't be used with a
+ * Selector, so the loop checks every pipe for available bytes and waits
+ * a short moment when none of them had any. While a bot is asked for a
+ * move the wait starts at ACTIVE_WAIT_NANOS and doubles every time
+ * nothing arrived, up to MAX_ACTIVE_WAIT_NANOS, so fast answers are timed
+ * precisely without checking the pipes of slow bots thousands of times a
+ * second. The loop also kills bots that don't read a message in time.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersBotIO implements Runnable {
+
+    public static final long ACTIVE_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    public static final long MAX_ACTIVE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    public static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static LightridersBotIO defaultIO;
+
+    private ConcurrentLinkedQueue<LightridersBotConnection> added;
+    private ArrayList<LightridersBotConnection> connections;
+    private volatile int connectionCount;
+    private volatile Thread thread;
+    private volatile boolean woken;
+
+    public LightridersBotIO() {
+        this.added = new ConcurrentLinkedQueue<>();
+        this.connections = new ArrayList<>();
+    }
+
+    /**
+     * @return The loop shared by all matches of this engine
+     */
+    public static synchronized LightridersBotIO getDefault() {
+        if (defaultIO == null) {
+            defaultIO = new LightridersBotIO();
+            defaultIO.start();
+        }
+
+        return defaultIO;
+    }
+
+    public synchronized void start() {
+        if (this.thread != null) return;
+
+        Thread thread = new Thread(this, "lightriders-bot-io");
+        thread.setDaemon(true);
+        this.thread = thread;
+        thread.start();
+    }
+
+    /**
+     * Starts a bot process and adds its pipes to the loop.
+     * @param command Command to start the bot with, split on whitespace
+     * @return Connection with the bot
+     * @throws IOException When the process can't be started
+     */
+    public LightridersBotConnection connect(String command) throws IOException {
+        Process process = new ProcessBuilder(command.trim().split("\\s+")).start();
+        LightridersBotConnection connection = new LightridersBotConnection(this, process);
+
+        this.added.add(connection);
+        wakeUp();
+
+        return connection;
+    }
+
+    /**
+     * @return The amount of bots the loop reads from
+     */
+    public int getConnectionCount() {
+        return this.connectionCount + this.added.size();
+    }
+
+    @Override
+    public void run() {
+        byte[] buffer = new byte[8192];
+        long activeWait = ACTIVE_WAIT_NANOS;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            LightridersBotConnection connection;
+            while ((connection = this.added.poll()) != null) {
+                this.connections.add(connection);
+            }
+
+            long now = System.nanoTime();
+            boolean progress = false;
+            boolean waiting = false;
+
+            Iterator<LightridersBotConnection> iterator = this.connections.iterator();
+            while (iterator.hasNext()) {
+                connection = iterator.next();
+                progress |= connection.poll(buffer, now);
+
+                if (connection.isClosed() && !connection.hasPendingRequest()) {
+                    iterator.remove();
+                } else {
+                    waiting |= connection.hasPendingRequest() || connection.isWriting();
+                }
+            }
+
+            this.connectionCount = this.connections.size();
+
+            if (progress || this.woken) {
+                this.woken = false;
+                activeWait = ACTIVE_WAIT_NANOS;
+            } else if (waiting) {
+                LockSupport.parkNanos(this, activeWait);
+                activeWait = Math.min(activeWait * 2, MAX_ACTIVE_WAIT_NANOS);
+            } else {
+                LockSupport.parkNanos(this, IDLE_WAIT_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Makes the loop check the pipes right away, for example because a
+     * bot was just asked for a move.
+     */
+    void wakeUp() {
+        this.woken = true;
+        Thread thread = this.thread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+}
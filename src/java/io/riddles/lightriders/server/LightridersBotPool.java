@@ -0,0 +1,203 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * io.riddles.lightriders.server.LightridersBotPool
+ *
+ * Keeps bot processes running between matches, so bots don't pay their
+ * startup and warmup for every match. Bots opt in by answering the
+ * "action reset" message with "ready" when they are ready for a new
+ * match, after which the settings are sent again as for a new process.
+ *
+ * A process is killed instead of reused when it stopped, timed out in
+ * its last match, doesn't answer the reset in time or has played the
+ * maximum amount of matches.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersBotPool implements Closeable {
+
+    public static final String RESET_MESSAGE = "action reset";
+    public static final String READY_RESPONSE = "ready";
+
+    public static final int DEFAULT_MAX_IDLE_PER_COMMAND = 8;
+    public static final int DEFAULT_MAX_MATCHES_PER_PROCESS = 100;
+    public static final long DEFAULT_RESET_TIMEOUT_MILLIS = 2000;
+
+    private LightridersBotIO io;
+    private int maxIdlePerCommand;
+    private int maxMatchesPerProcess;
+    private long resetTimeoutNanos;
+    private HashMap<String, ArrayDeque<LightridersBotConnection>> idle;
+    private boolean closed;
+
+    private AtomicLong started;
+    private AtomicLong reused;
+    private AtomicLong killed;
+
+    public LightridersBotPool(LightridersBotIO io) {
+        this(io, DEFAULT_MAX_IDLE_PER_COMMAND, DEFAULT_MAX_MATCHES_PER_PROCESS, DEFAULT_RESET_TIMEOUT_MILLIS);
+    }
+
+    public LightridersBotPool(LightridersBotIO io, int maxIdlePerCommand, int maxMatchesPerProcess,
+                              long resetTimeoutMillis) {
+        this.io = io;
+        this.maxIdlePerCommand = maxIdlePerCommand;
+        this.maxMatchesPerProcess = maxMatchesPerProcess;
+        this.resetTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(resetTimeoutMillis);
+        this.idle = new HashMap<>();
+        this.started = new AtomicLong();
+        this.reused = new AtomicLong();
+        this.killed = new AtomicLong();
+    }
+
+    /**
+     * Gets a bot process that is ready for a new match: a running one that
+     * answered the reset, or a new one if there is none.
+     * @param command Command of the bot
+     * @return Connection with the bot
+     * @throws IOException When a new process can't be started
+     */
+    public LightridersBotConnection acquire(String command) throws IOException {
+        LightridersBotConnection connection;
+
+        while ((connection = pollIdle(command)) != null) {
+            if (reset(connection)) {
+                this.reused.incrementAndGet();
+                connection.addMatch();
+                return connection;
+            }
+
+            kill(connection);
+        }
+
+        connection = this.io.connect(command);
+        this.started.incrementAndGet();
+        connection.addMatch();
+
+        return connection;
+    }
+
+    /**
+     * Gives a bot process back after a match.
+     * @param command Command the process was acquired with
+     * @param connection Connection with the bot
+     * @param healthy False if the bot misbehaved during the match and shouldn't be reused
+     */
+    public void release(String command, LightridersBotConnection connection, boolean healthy) {
+        if (!healthy || connection.isClosed() || connection.getMatchCount() >= this.maxMatchesPerProcess) {
+            kill(connection);
+            return;
+        }
+
+        synchronized (this) {
+            ArrayDeque<LightridersBotConnection> connections =
+                    this.idle.computeIfAbsent(command, key -> new ArrayDeque<>());
+
+            if (!this.closed && connections.size() < this.maxIdlePerCommand) {
+                connections.push(connection);
+                return;
+            }
+        }
+
+        kill(connection);
+    }
+
+    /**
+     * @return The amount of bot processes that were started
+     */
+    public long getStartedCount() {
+        return this.started.get();
+    }
+
+    /**
+     * @return The amount of times a running bot process was used for a new match
+     */
+    public long getReusedCount() {
+        return this.reused.get();
+    }
+
+    /**
+     * @return The amount of bot processes that were killed instead of reused
+     */
+    public long getKilledCount() {
+        return this.killed.get();
+    }
+
+    public synchronized int getIdleCount() {
+        int count = 0;
+        for (ArrayDeque<LightridersBotConnection> connections : this.idle.values()) {
+            count += connections.size();
+        }
+
+        return count;
+    }
+
+    @Override
+    public void close() {
+        ArrayList<LightridersBotConnection> connections = new ArrayList<>();
+
+        synchronized (this) {
+            this.closed = true;
+            for (ArrayDeque<LightridersBotConnection> idle : this.idle.values()) {
+                connections.addAll(idle);
+            }
+            this.idle.clear();
+        }
+
+        connections.forEach(LightridersBotConnection::close);
+    }
+
+    private synchronized LightridersBotConnection pollIdle(String command) {
+        ArrayDeque<LightridersBotConnection> connections = this.idle.get(command);
+
+        // Most recently used first, it is the most likely to still be warm
+        return connections != null ? connections.poll() : null;
+    }
+
+    /**
+     * Sends the reset and waits for the bot to be ready. Anything the bot
+     * still had to say about its last match is skipped.
+     */
+    private boolean reset(LightridersBotConnection connection) {
+        long deadline = System.nanoTime() + this.resetTimeoutNanos;
+        String response = connection.request(RESET_MESSAGE, this.resetTimeoutNanos);
+
+        while (response != null && !response.equals(READY_RESPONSE)) {
+            response = connection.request(null, deadline - System.nanoTime());
+        }
+
+        return response != null;
+    }
+
+    private void kill(LightridersBotConnection connection) {
+        connection.close();
+        this.killed.incrementAndGet();
+    }
+}
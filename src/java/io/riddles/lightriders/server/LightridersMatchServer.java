@@ -0,0 +1,241 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.server;
+
+import io.riddles.lightriders.game.LightridersSerializer;
+import io.riddles.lightriders.game.state.LightridersState;
+import io.riddles.lightriders.tournament.LightridersBot;
+import io.riddles.lightriders.tournament.LightridersMatch;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * io.riddles.lightriders.server.LightridersMatchServer
+ *
+ * Keeps the engine running and plays matches it receives on a localhost
+ * socket, so the JVM startup and warmup are only paid once. Every line a
+ * client sends is a match job:
+ *
+ * {"id": "m1", "timebankMax": 10000, "timePerMove": 200,
+ *  "configuration": {"fieldWidth": 16, "fieldHeight": 16, "maxRounds": -1, "seed": "abc"},
+ *  "bots": [{"command": "java -jar bot.jar"}, {"command": "python3 bot.py"}]}
+ *
+ * Matches are played at the same time, and for each finished match one
+ * line is sent back: {"id": "m1", "winner": 0, "bots": [...], "game": {played game}},
+ * with the timebank left and the response times of each bot, or
+ * {"id": "m1", "error": "message"} if the match could not be played.
+ * The bots of all matches are read by one LightridersBotIO loop, so a
+ * match only needs the thread that plays it. Bots with "pooled": true
+ * are kept running for later matches with the same command, see
+ * LightridersBotPool.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersMatchServer {
+
+    public static final int DEFAULT_PORT = 7700;
+
+    private final static Logger LOGGER = Logger.getLogger(LightridersMatchServer.class.getName());
+
+    private int port;
+    private ExecutorService matchExecutor;
+    private LightridersBotPool botPool;
+
+    public LightridersMatchServer(int port, int threads) {
+        this.port = port;
+        this.matchExecutor = Executors.newFixedThreadPool(threads);
+        this.botPool = new LightridersBotPool(LightridersBotIO.getDefault());
+    }
+
+    /**
+     * Accepts connections until the process is stopped.
+     * @throws IOException When the socket can't be opened
+     */
+    public void run() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(this.port, 50, InetAddress.getLoopbackAddress())) {
+            LOGGER.info("Match server listening on port " + serverSocket.getLocalPort());
+
+            while (!serverSocket.isClosed()) {
+                Socket socket = serverSocket.accept();
+                Thread connection = new Thread(() -> handleConnection(socket), "lightriders-connection");
+                connection.setDaemon(true);
+                connection.start();
+            }
+        } finally {
+            this.matchExecutor.shutdownNow();
+            this.botPool.close();
+        }
+    }
+
+    private void handleConnection(Socket socket) {
+        try (Socket client = socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(
+                     client.getInputStream(), StandardCharsets.UTF_8));
+             Writer writer = new BufferedWriter(new OutputStreamWriter(
+                     client.getOutputStream(), StandardCharsets.UTF_8))) {
+
+            ArrayList<Future<?>> matches = new ArrayList<>();
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) continue;
+
+                String job = line;
+                matches.add(this.matchExecutor.submit(() -> playMatch(job, writer)));
+            }
+
+            // The client is done sending, finish its matches before closing
+            for (Future<?> match : matches) {
+                match.get();
+            }
+        } catch (IOException | ExecutionException ex) {
+            LOGGER.log(Level.WARNING, "Connection failed", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void playMatch(String jobString, Writer writer) {
+        String id = null;
+        List<LightridersProcessBot> bots = new ArrayList<>();
+
+        try {
+            JSONObject job = new JSONObject(jobString);
+            id = job.optString("id", UUID.randomUUID().toString());
+
+            JSONObject configuration = job.optJSONObject("configuration");
+            if (configuration == null) {
+                configuration = new JSONObject();
+            }
+
+            int width = configuration.optInt("fieldWidth", 16);
+            int height = configuration.optInt("fieldHeight", 16);
+            int maxRounds = configuration.optInt("maxRounds", -1);
+            String seed = configuration.optString("seed", UUID.randomUUID().toString());
+
+            JSONArray botsJson = job.getJSONArray("bots");
+            for (int i = 0; i < botsJson.length(); i++) {
+                JSONObject botJson = botsJson.getJSONObject(i);
+                String command = botJson.getString("command");
+                int timebankMax = job.optInt("timebankMax", 10000);
+                int timePerMove = job.optInt("timePerMove", 200);
+
+                if (botJson.optBoolean("pooled", false)) {
+                    bots.add(new LightridersProcessBot(command, botsJson.length(), maxRounds,
+                            timebankMax, timePerMove, this.botPool));
+                } else {
+                    bots.add(new LightridersProcessBot(command, botsJson.length(), maxRounds,
+                            timebankMax, timePerMove));
+                }
+            }
+
+            LightridersMatch match = new LightridersMatch(new ArrayList<LightridersBot>(bots),
+                    width, height, maxRounds, seed);
+            LightridersState finalState = match.run();
+
+            writeResult(writer, id, match, finalState, bots);
+        } catch (RuntimeException | IOException ex) {
+            LOGGER.log(Level.WARNING, "Match " + id + " failed", ex);
+            writeError(writer, id, ex.getMessage());
+        } finally {
+            bots.forEach(LightridersProcessBot::close);
+        }
+    }
+
+    private void writeResult(Writer writer, String id, LightridersMatch match, LightridersState finalState,
+                             List<LightridersProcessBot> bots) throws IOException {
+        JSONObject result = new JSONObject();
+        result.put("id", id);
+        result.put("winner", nullable(match.getProcessor().getWinnerId(finalState)));
+
+        JSONArray botResults = new JSONArray();
+        for (LightridersProcessBot bot : bots) {
+            JSONObject botResult = new JSONObject();
+            botResult.put("timebank", bot.getTimebank());
+            botResult.put("responseTimes", bot.getResponseTimes().toJson());
+            botResults.put(botResult);
+        }
+        result.put("bots", botResults);
+        String header = result.toString();
+
+        // Serialized before taking the lock, so a failure can't leave half a line behind
+        StringWriter line = new StringWriter();
+        line.write(header, 0, header.length() - 1);
+        line.write(",\"game\":");
+        new LightridersSerializer().traverseToWriter(match.getProcessor(), match.getInitialState(), line);
+        line.write("}\n");
+
+        synchronized (writer) {
+            writer.write(line.toString());
+            writer.flush();
+        }
+    }
+
+    private void writeError(Writer writer, String id, String message) {
+        JSONObject result = new JSONObject();
+        result.put("id", nullable(id));
+        result.put("error", nullable(message));
+
+        synchronized (writer) {
+            try {
+                writer.write(result.toString());
+                writer.write("\n");
+                writer.flush();
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Can't send result of match " + id, ex);
+            }
+        }
+    }
+
+    private static Object nullable(Object value) {
+        return value != null ? value : JSONObject.NULL;
+    }
+
+    /**
+     * Usage: LightridersMatchServer [port] [threads]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        new LightridersMatchServer(port, threads).run();
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.server;
+
+import io.riddles.lightriders.game.move.LightridersMove;
+import io.riddles.lightriders.game.move.LightridersMoveDeserializer;
+import io.riddles.lightriders.game.move.MoveType;
+import io.riddles.lightriders.game.state.LightridersState;
+import io.riddles.lightriders.metrics.LightridersLatencyHistogram;
+import io.riddles.lightriders.tournament.LightridersBot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * io.riddles.lightriders.server.LightridersProcessBot
+ *
+ * Runs a bot as a separate process and talks to it with the same
+ * messages the match-wrapper sends, so existing bots can be used
+ * without changes. Keeps track of the bot's timebank itself, using the
+ * response times measured by the LightridersBotIO loop, which reads the
+ * output of all bots so no threads are needed per bot. With a
+ * LightridersBotPool the process is taken from and given back to the
+ * pool instead of started and killed for every match. A bot that doesn't
+ * answer in time is out of the match: a late answer would otherwise be
+ * read as its next move, so it isn't asked for moves anymore and its
+ * process is stopped.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersProcessBot implements LightridersBot, Closeable {
+
+    private String command;
+    private int playerCount;
+    private int maxRounds;
+    private int timebankMax;
+    private int timePerMove;
+    private LightridersBotIO io;
+    private LightridersBotPool pool;
+
+    private LightridersBotConnection connection;
+    private boolean healthy;
+    private long timebankNanos;
+    private LightridersMoveDeserializer moveDeserializer;
+    private LightridersLatencyHistogram responseTimes;
+
+    public LightridersProcessBot(String command, int playerCount, int maxRounds, int timebankMax, int timePerMove) {
+        this(command, playerCount, maxRounds, timebankMax, timePerMove, LightridersBotIO.getDefault());
+    }
+
+    public LightridersProcessBot(String command, int playerCount, int maxRounds, int timebankMax, int timePerMove,
+                                 LightridersBotIO io) {
+        this.command = command;
+        this.playerCount = playerCount;
+        this.maxRounds = maxRounds;
+        this.timebankMax = timebankMax;
+        this.timePerMove = timePerMove;
+        this.io = io;
+        this.pool = null;
+        this.moveDeserializer = new LightridersMoveDeserializer();
+        this.responseTimes = new LightridersLatencyHistogram();
+    }
+
+    /**
+     * Creates a bot that reuses a running process from the pool, if the
+     * pool has one for its command.
+     */
+    public LightridersProcessBot(String command, int playerCount, int maxRounds, int timebankMax, int timePerMove,
+                                 LightridersBotPool pool) {
+        this(command, playerCount, maxRounds, timebankMax, timePerMove, (LightridersBotIO) null);
+        this.pool = pool;
+    }
+
+    @Override
+    public void setup(int botId, int fieldWidth, int fieldHeight) {
+        try {
+            this.connection = this.pool != null ? this.pool.acquire(this.command) : this.io.connect(this.command);
+            this.healthy = true;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Can't start bot: " + this.command, ex);
+        }
+
+        StringBuilder playerNames = new StringBuilder();
+        for (int id = 0; id < this.playerCount; id++) {
+            playerNames.append(id > 0 ? "," : "").append("player").append(id);
+        }
+
+        this.timebankNanos = TimeUnit.MILLISECONDS.toNanos(this.timebankMax);
+        send("settings player_names " + playerNames);
+        send("settings your_bot player" + botId);
+        send("settings timebank " + this.timebankMax);
+        send("settings time_per_move " + this.timePerMove);
+        send("settings your_botid " + botId);
+        send("settings field_width " + fieldWidth);
+        send("settings field_height " + fieldHeight);
+
+        if (this.maxRounds > 0) {
+            send("settings max_rounds " + this.maxRounds);
+        }
+    }
+
+    @Override
+    public MoveType getMove(LightridersState state, int botId) {
+        if (this.connection == null) {
+            throw new IllegalStateException("Bot timed out in an earlier round");
+        }
+
+        this.timebankNanos = Math.min(this.timebankNanos + TimeUnit.MILLISECONDS.toNanos(this.timePerMove),
+                TimeUnit.MILLISECONDS.toNanos(this.timebankMax));
+        long start = System.nanoTime();
+        long deadline = start + this.timebankNanos;
+
+        // The updates and the request share the time for the move. A bot that doesn't
+        // read the updates in time is killed, and then doesn't answer the request below
+        this.connection.send("update game round " + state.getRoundNumber(), deadline - System.nanoTime());
+        this.connection.send("update game field " + state.getBoard().toString(), deadline - System.nanoTime());
+
+        String response = requestMove(start, deadline);
+        if (response == null) {
+            stop();
+            throw new IllegalStateException("Bot timed out");
+        }
+
+        LightridersMove move = this.moveDeserializer.traverse(response);
+        if (move.getException() != null) {
+            throw new IllegalArgumentException(move.getException().getMessage());
+        }
+
+        return move.getMoveType();
+    }
+
+    /**
+     * @return Time the bot took to answer each move request
+     */
+    public LightridersLatencyHistogram getResponseTimes() {
+        return this.responseTimes;
+    }
+
+    /**
+     * @return Time left in the bot's timebank, in ms
+     */
+    public long getTimebank() {
+        return TimeUnit.NANOSECONDS.toMillis(this.timebankNanos);
+    }
+
+    @Override
+    public void close() {
+        if (this.connection == null) return;
+
+        if (this.pool != null) {
+            this.pool.release(this.command, this.connection, this.healthy);
+        } else {
+            this.connection.close();
+        }
+        this.connection = null;
+    }
+
+    /**
+     * Asks the bot for a move and waits until the deadline of the move. The
+     * time since the updates were sent is charged to the timebank.
+     * @param start Time the updates for the move were sent
+     * @param deadline Time the move has to be answered by
+     * @return The bot's response, or null if it didn't answer in time
+     */
+    private String requestMove(long start, long deadline) {
+        long requestStart = System.nanoTime();
+        String response = this.connection.request(
+                "action move " + getTimebank(), deadline - requestStart);
+        long responseNanos = requestStart - start + this.connection.getLastResponseNanos();
+
+        this.responseTimes.record(responseNanos);
+        this.timebankNanos = response != null ? Math.max(0, this.timebankNanos - responseNanos) : 0;
+
+        return response;
+    }
+
+    /**
+     * Takes the bot out of the match, its process isn't reused.
+     */
+    private void stop() {
+        this.healthy = false;
+        close();
+    }
+
+    private void send(String message) {
+        this.connection.send(message);
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.server;
+
+import io.riddles.lightriders.game.state.LightridersState;
+import io.riddles.lightriders.game.state.LightridersStateSerializer;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * io.riddles.lightriders.server.LightridersSpectatorFeed
+ *
+ * Streams every state of a running game to spectators on a localhost
+ * socket, one JSON line per state in the format of
+ * LightridersStateSerializer. The states only hold the player positions,
+ * so a spectator that connects during the game first gets every state
+ * published so far, and can always rebuild the trails from round 0.
+ * Each spectator gets its own bounded buffer and writer thread, so the
+ * game loop never waits for a spectator. A spectator whose buffer is full
+ * is too slow to keep up and is disconnected, so it knows it missed states.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersSpectatorFeed implements Closeable {
+
+    private final static Logger LOGGER = Logger.getLogger(LightridersSpectatorFeed.class.getName());
+
+    private static final byte[] END_OF_FEED = new byte[0];
+
+    private ServerSocket serverSocket;
+    private int bufferSize;
+    private CopyOnWriteArrayList<Subscriber> subscribers;
+    private LightridersStateSerializer stateSerializer;
+    private ArrayList<byte[]> publishedLines;
+
+    /**
+     * Opens the socket and starts accepting spectators.
+     * @param port Port to listen on, 0 for any free port
+     * @param bufferSize Amount of states buffered per spectator
+     * @throws IOException When the socket can't be opened
+     */
+    public LightridersSpectatorFeed(int port, int bufferSize) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.bufferSize = bufferSize;
+        this.subscribers = new CopyOnWriteArrayList<>();
+        this.stateSerializer = new LightridersStateSerializer();
+        this.publishedLines = new ArrayList<>();
+
+        Thread acceptor = new Thread(this::acceptSubscribers, "lightriders-spectator-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        LOGGER.info("Spectator feed listening on port " + getPort());
+    }
+
+    public int getPort() {
+        return this.serverSocket.getLocalPort();
+    }
+
+    public int getSubscriberCount() {
+        return this.subscribers.size();
+    }
+
+    /**
+     * Serializes the state once, keeps it for spectators that connect
+     * later and queues it for every spectator. Doesn't block.
+     * @param state State to publish
+     */
+    public void publish(LightridersState state) {
+        String json = this.stateSerializer.traverseToString(state) + "\n";
+        byte[] line = json.getBytes(StandardCharsets.UTF_8);
+
+        // Spectators subscribe under the same lock, so every line is
+        // either in their catch-up or in their queue, never in both
+        synchronized (this.publishedLines) {
+            this.publishedLines.add(line);
+
+            for (Subscriber subscriber : this.subscribers) {
+                if (!subscriber.queue.offer(line)) {
+                    LOGGER.warning("Spectator can't keep up, disconnecting");
+                    removeSubscriber(subscriber);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting spectators. Connected spectators still receive
+     * the states in their buffer before they are disconnected.
+     */
+    @Override
+    public void close() throws IOException {
+        this.serverSocket.close();
+
+        synchronized (this.publishedLines) {
+            for (Subscriber subscriber : this.subscribers) {
+                this.subscribers.remove(subscriber);
+
+                // Never blocks the caller, a full buffer is closed straight away
+                if (!subscriber.queue.offer(END_OF_FEED)) {
+                    closeQuietly(subscriber.socket);
+                }
+            }
+        }
+    }
+
+    private void acceptSubscribers() {
+        while (!this.serverSocket.isClosed()) {
+            try {
+                Socket socket = this.serverSocket.accept();
+                socket.shutdownInput();
+
+                Subscriber subscriber;
+                synchronized (this.publishedLines) {
+                    if (this.serverSocket.isClosed()) {
+                        closeQuietly(socket);
+                        break;
+                    }
+
+                    subscriber = new Subscriber(socket, new ArrayBlockingQueue<>(this.bufferSize),
+                            new ArrayList<>(this.publishedLines));
+                    this.subscribers.add(subscriber);
+                }
+
+                Thread writer = new Thread(() -> writeToSubscriber(subscriber), "lightriders-spectator");
+                writer.setDaemon(true);
+                writer.start();
+            } catch (SocketException ex) {
+                // Socket is closed
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Failed to accept spectator", ex);
+            }
+        }
+    }
+
+    private void writeToSubscriber(Subscriber subscriber) {
+        try (Socket socket = subscriber.socket) {
+            OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+
+            for (byte[] line : subscriber.catchUp) {
+                output.write(line);
+            }
+            output.flush();
+
+            while (true) {
+                byte[] line = subscriber.queue.take();
+                if (line == END_OF_FEED) break;
+
+                output.write(line);
+
+                // Write everything that is already queued before flushing
+                while ((line = subscriber.queue.poll()) != null && line != END_OF_FEED) {
+                    output.write(line);
+                }
+                output.flush();
+
+                if (line == END_OF_FEED) break;
+            }
+        } catch (IOException ex) {
+            // Spectator disconnected
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.subscribers.remove(subscriber);
+        }
+    }
+
+    private void removeSubscriber(Subscriber subscriber) {
+        this.subscribers.remove(subscriber);
+        closeQuietly(subscriber.socket);
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ex) {
+            // Already closed
+        }
+    }
+
+    private static class Subscriber {
+
+        private final Socket socket;
+        private final BlockingQueue<byte[]> queue;
+        private final List<byte[]> catchUp;
+
+        private Subscriber(Socket socket, BlockingQueue<byte[]> queue, List<byte[]> catchUp) {
+            this.socket = socket;
+            this.queue = queue;
+            this.catchUp = catchUp;
+        }
+    }
+}
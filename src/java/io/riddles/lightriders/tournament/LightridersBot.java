@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.tournament;
+
+import io.riddles.lightriders.game.move.MoveType;
+import io.riddles.lightriders.game.state.LightridersState;
+
+/**
+ * io.riddles.lightriders.tournament.LightridersBot
+ *
+ * A bot that runs inside the engine's JVM instead of as a separate process.
+ * A new instance is created for every match.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public interface LightridersBot {
+
+    /**
+     * Called once before the first move, like the settings sent to process bots.
+     * @param botId Id of this bot in the match
+     * @param fieldWidth Field width
+     * @param fieldHeight Field height
+     */
+    default void setup(int botId, int fieldWidth, int fieldHeight) {}
+
+    /**
+     * @param state Current state of the match, must not be changed
+     * @param botId Id of this bot in the match
+     * @return The move for this round, null to keep going in the current direction
+     */
+    MoveType getMove(LightridersState state, int botId);
+}
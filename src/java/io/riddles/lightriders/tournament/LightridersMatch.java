@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.tournament;
+
+import io.riddles.javainterface.configuration.Configuration;
+import io.riddles.javainterface.exception.InvalidInputException;
+import io.riddles.javainterface.game.player.PlayerProvider;
+import io.riddles.lightriders.engine.LightridersEngine;
+import io.riddles.lightriders.game.move.LightridersMove;
+import io.riddles.lightriders.game.move.MoveType;
+import io.riddles.lightriders.game.player.LightridersPlayer;
+import io.riddles.lightriders.game.processor.LightridersLogic;
+import io.riddles.lightriders.game.processor.LightridersProcessor;
+import io.riddles.lightriders.game.state.LightridersPlayerState;
+import io.riddles.lightriders.game.state.LightridersState;
+
+import java.util.List;
+
+/**
+ * io.riddles.lightriders.tournament.LightridersMatch
+ *
+ * Plays one match between in-process bots. All match state is kept in
+ * this object, so any amount of matches can run at the same time.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersMatch {
+
+    private List<LightridersBot> bots;
+    private int width;
+    private int height;
+    private int maxRounds;
+    private String seed;
+    private LightridersProcessor processor;
+    private LightridersState initialState;
+
+    public LightridersMatch(List<LightridersBot> bots, int width, int height, int maxRounds, String seed) {
+        this.bots = bots;
+        this.width = width;
+        this.height = height;
+        this.maxRounds = maxRounds;
+        this.seed = seed;
+
+        Configuration configuration = new Configuration();
+        configuration.put("maxRounds", maxRounds);
+        configuration.put("fieldWidth", width);
+        configuration.put("fieldHeight", height);
+        configuration.put("seed", seed);
+        configuration.put("metrics", 0);
+        configuration.put("adjudicate", 0);
+        configuration.put("keyframeInterval", 0);
+
+        PlayerProvider<LightridersPlayer> playerProvider = new PlayerProvider<>();
+        for (int id = 0; id < bots.size(); id++) {
+            playerProvider.add(new LightridersPlayer(id));
+        }
+
+        this.processor = new LightridersProcessor(playerProvider, configuration);
+    }
+
+    /**
+     * Plays the match until it has ended.
+     * @return Last state of the match
+     */
+    public LightridersState run() {
+        LightridersState state = LightridersEngine.createInitialState(
+                this.width, this.height, this.bots.size(), LightridersEngine.createRandom(this.seed));
+        this.initialState = state;
+
+        for (int id = 0; id < this.bots.size(); id++) {
+            this.bots.get(id).setup(id, this.width, this.height);
+        }
+
+        int roundNumber = 0;
+        while (!this.processor.hasGameEnded(state)) {
+            roundNumber++;
+            LightridersState nextState = state.createNextState(roundNumber);
+
+            for (LightridersPlayerState playerState : nextState.getPlayerStates()) {
+                if (!playerState.isAlive()) continue;
+
+                playerState.setMove(getBotMove(state, playerState.getPlayerId()));
+            }
+
+            LightridersLogic.transform(nextState);
+            state = nextState;
+        }
+
+        return state;
+    }
+
+    public LightridersProcessor getProcessor() {
+        return this.processor;
+    }
+
+    public LightridersState getInitialState() {
+        return this.initialState;
+    }
+
+    public String getSeed() {
+        return this.seed;
+    }
+
+    private LightridersMove getBotMove(LightridersState state, int botId) {
+        MoveType moveType;
+
+        try {
+            moveType = this.bots.get(botId).getMove(state, botId);
+        } catch (RuntimeException ex) {
+            String message = ex.getMessage() != null ? ex.getMessage() : "Bot failed to move";
+            return new LightridersMove(new InvalidInputException(message));
+        }
+
+        if (moveType == null) {
+            return LightridersMove.of(MoveType.PASS);
+        }
+
+        return LightridersMove.of(moveType);
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.tournament;
+
+import io.riddles.lightriders.archive.LightridersArchiveWriter;
+import io.riddles.lightriders.engine.LightridersRandom;
+import io.riddles.lightriders.game.state.LightridersState;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * io.riddles.lightriders.tournament.LightridersTournament
+ *
+ * Plays a round robin tournament between in-process bots on all cores of
+ * one JVM. Every pair of bots plays the given amount of matches, switching
+ * sides every match. A win is worth 1 point and a draw half a point.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class LightridersTournament {
+
+    private ArrayList<Entry> entries;
+    private int width;
+    private int height;
+    private int maxRounds;
+    private int matchesPerPairing;
+    private String seed;
+    private int threads;
+    private LightridersArchiveWriter archive;
+
+    public LightridersTournament(int width, int height, int maxRounds, int matchesPerPairing, String seed) {
+        this.entries = new ArrayList<>();
+        this.width = width;
+        this.height = height;
+        this.maxRounds = maxRounds;
+        this.matchesPerPairing = matchesPerPairing;
+        this.seed = seed;
+        this.threads = Runtime.getRuntime().availableProcessors();
+    }
+
+    public void addBot(String name, Supplier<LightridersBot> botSupplier) {
+        this.entries.add(new Entry(name, botSupplier));
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Plays all matches and fills in the score table.
+     * @return The entries, sorted by points
+     * @throws InterruptedException When interrupted while waiting for matches
+     */
+    public List<Entry> run() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+        ArrayList<Future<?>> futures = new ArrayList<>();
+        int matchIndex = 0;
+
+        try {
+            for (int i = 0; i < this.entries.size(); i++) {
+                for (int j = i + 1; j < this.entries.size(); j++) {
+                    for (int k = 0; k < this.matchesPerPairing; k++) {
+                        Entry first = k % 2 == 0 ? this.entries.get(i) : this.entries.get(j);
+                        Entry second = k % 2 == 0 ? this.entries.get(j) : this.entries.get(i);
+                        String matchId = this.seed + ":" + matchIndex;
+                        String matchSeed = LightridersRandom.deriveSeed(this.seed, matchIndex++);
+
+                        futures.add(executor.submit(() -> playMatch(first, second, matchId, matchSeed)));
+                    }
+                }
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Match failed", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        ArrayList<Entry> table = new ArrayList<>(this.entries);
+        table.sort(Comparator.comparingDouble(Entry::getPoints).reversed());
+
+        return table;
+    }
+
+    public void printScoreTable(PrintStream out) {
+        ArrayList<Entry> table = new ArrayList<>(this.entries);
+        table.sort(Comparator.comparingDouble(Entry::getPoints).reversed());
+
+        out.println(String.format("%-24s %7s %7s %7s %7s %9s", "bot", "played", "wins", "draws", "losses", "points"));
+        for (Entry entry : table) {
+            out.println(String.format("%-24s %7d %7d %7d %7d %9.1f", entry.name, entry.getPlayed(),
+                    entry.getWins(), entry.getDraws(), entry.getLosses(), entry.getPoints()));
+        }
+    }
+
+    /**
+     * Stores the played game of every match in the archive, with the
+     * tournament seed and match index as match id.
+     * @param archive Archive to add the matches to, null to not store them
+     */
+    public void setArchive(LightridersArchiveWriter archive) {
+        this.archive = archive;
+    }
+
+    private void playMatch(Entry first, Entry second, String matchId, String matchSeed) {
+        List<LightridersBot> bots = Arrays.asList(first.botSupplier.get(), second.botSupplier.get());
+        LightridersMatch match = new LightridersMatch(bots, this.width, this.height, this.maxRounds, matchSeed);
+        LightridersState finalState = match.run();
+        Integer winnerId = match.getProcessor().getWinnerId(finalState);
+
+        if (winnerId == null) {
+            first.addResult(0, 1, 0);
+            second.addResult(0, 1, 0);
+        } else if (winnerId == 0) {
+            first.addResult(1, 0, 0);
+            second.addResult(0, 0, 1);
+        } else {
+            first.addResult(0, 0, 1);
+            second.addResult(1, 0, 0);
+        }
+
+        if (this.archive != null) {
+            try {
+                this.archive.append(matchId, matchSeed, Arrays.asList(first.name, second.name),
+                        match.getProcessor(), match.getInitialState());
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    /**
+     * Runs a tournament between bot classes that have a no-argument constructor.
+     * Usage: LightridersTournament [-size 16x16] [-rounds -1] [-matches 100] [-seed s] [-archive dir] botClass...
+     */
+    public static void main(String[] args) throws Exception {
+        int width = 16;
+        int height = 16;
+        int maxRounds = -1;
+        int matchesPerPairing = 100;
+        String seed = "tournament";
+        String archiveDirectory = null;
+        ArrayList<String> botClasses = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-size":
+                    String[] size = args[++i].split("x");
+                    width = Integer.parseInt(size[0]);
+                    height = Integer.parseInt(size[1]);
+                    break;
+                case "-rounds":
+                    maxRounds = Integer.parseInt(args[++i]);
+                    break;
+                case "-matches":
+                    matchesPerPairing = Integer.parseInt(args[++i]);
+                    break;
+                case "-seed":
+                    seed = args[++i];
+                    break;
+                case "-archive":
+                    archiveDirectory = args[++i];
+                    break;
+                default:
+                    botClasses.add(args[i]);
+            }
+        }
+
+        LightridersTournament tournament = new LightridersTournament(width, height, maxRounds, matchesPerPairing, seed);
+        for (String botClass : botClasses) {
+            Class<? extends LightridersBot> type = Class.forName(botClass).asSubclass(LightridersBot.class);
+            String name = type.getSimpleName() + "#" + tournament.entries.size();
+
+            tournament.addBot(name, () -> {
+                try {
+                    return type.newInstance();
+                } catch (ReflectiveOperationException ex) {
+                    throw new RuntimeException("Can't create bot " + botClass, ex);
+                }
+            });
+        }
+
+        if (archiveDirectory != null) {
+            try (LightridersArchiveWriter archive = new LightridersArchiveWriter(new File(archiveDirectory))) {
+                tournament.setArchive(archive);
+                tournament.run();
+            }
+        } else {
+            tournament.run();
+        }
+        tournament.printScoreTable(System.out);
+    }
+
+    public static class Entry {
+
+        private final String name;
+        private final Supplier<LightridersBot> botSupplier;
+        private int wins;
+        private int draws;
+        private int losses;
+
+        Entry(String name, Supplier<LightridersBot> botSupplier) {
+            this.name = name;
+            this.botSupplier = botSupplier;
+        }
+
+        synchronized void addResult(int wins, int draws, int losses) {
+            this.wins += wins;
+            this.draws += draws;
+            this.losses += losses;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public synchronized int getPlayed() {
+            return this.wins + this.draws + this.losses;
+        }
+
+        public synchronized int getWins() {
+            return this.wins;
+        }
+
+        public synchronized int getDraws() {
+            return this.draws;
+        }
+
+        public synchronized int getLosses() {
+            return this.losses;
+        }
+
+        public synchronized double getPoints() {
+            return this.wins + this.draws * 0.5;
+        }
+    }
+}
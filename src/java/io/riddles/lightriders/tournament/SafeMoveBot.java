@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders.tournament;
+
+import io.riddles.lightriders.game.board.LightridersBoard;
+import io.riddles.lightriders.game.move.MoveType;
+import io.riddles.lightriders.game.state.LightridersPlayerState;
+import io.riddles.lightriders.game.state.LightridersState;
+
+import java.util.Random;
+
+/**
+ * io.riddles.lightriders.tournament.SafeMoveBot
+ *
+ * Simple in-process bot that moves to a random empty neighbouring cell.
+ * Useful as an opponent when testing other bots.
+ *
+ * @author Joost de Meij - joost@riddles.io, Jim van Eeden - jim@riddles.io
+ */
+public class SafeMoveBot implements LightridersBot {
+
+    private static final MoveType[] DIRECTIONS = { MoveType.UP, MoveType.DOWN, MoveType.LEFT, MoveType.RIGHT };
+
+    private Random random;
+
+    @Override
+    public void setup(int botId, int fieldWidth, int fieldHeight) {
+        this.random = new Random(botId * 31L + fieldWidth * 17L + fieldHeight);
+    }
+
+    @Override
+    public MoveType getMove(LightridersState state, int botId) {
+        LightridersPlayerState playerState = state.getPlayerStates().get(botId);
+        LightridersBoard board = state.getBoard();
+        int start = this.random.nextInt(DIRECTIONS.length);
+
+        for (int i = 0; i < DIRECTIONS.length; i++) {
+            MoveType moveType = DIRECTIONS[(start + i) % DIRECTIONS.length];
+            int x = playerState.getX() + moveType.getDeltaX();
+            int y = playerState.getY() + moveType.getDeltaY();
+
+            if (board.isEmpty(x, y)) {
+                return moveType;
+            }
+        }
+
+        return MoveType.PASS;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+
+package io.riddles.lightriders
+
+import io.riddles.lightriders.archive.LightridersArchiveEntry
+import io.riddles.lightriders.archive.LightridersArchiveReader
+import io.riddles.lightriders.archive.LightridersArchiveWriter
+import io.riddles.lightriders.game.LightridersSerializer
+import io.riddles.lightriders.tournament.LightridersMatch
+import io.riddles.lightriders.tournament.SafeMoveBot
+import org.json.JSONObject
+import spock.lang.Specification
+
+/**
+ * io.riddles.lightriders.LightridersArchiveSpec
+ *
+ * Checks that played games can be found and read back from an archive,
+ * also after reopening it and after an interrupted write.
+ *
+ * @author joost
+ */
+
+class LightridersArchiveSpec extends Specification {
+
+    def "played games are read back the same as they were serialized"() {
+        setup:
+        File directory = File.createTempDir()
+        LightridersArchiveWriter writer = new LightridersArchiveWriter(directory, 4096)
+        Map<String, String> playedGames = [:]
+
+        for (int i = 0; i < 20; i++) {
+            LightridersMatch match = new LightridersMatch([new SafeMoveBot(), new SafeMoveBot()], 12, 12, -1, "seed" + i)
+            match.run()
+            writer.append("match" + i, "seed" + i, ["first", "second"], match.getProcessor(), match.getInitialState())
+            playedGames["match" + i] = new LightridersSerializer().traverseToString(match.getProcessor(), match.getInitialState())
+        }
+        writer.close()
+
+        LightridersArchiveReader reader = new LightridersArchiveReader(directory)
+
+        expect:
+        reader.getEntries().size() == 20
+        reader.getEntries().collect { it.getSegment() }.max() > 0
+        playedGames.every { matchId, playedGame -> reader.readPlayedGame(matchId) == playedGame }
+        new JSONObject(reader.readPlayedGame("match7")).getJSONArray("states").length() ==
+                reader.getEntry("match7").getRoundCount() + 1
+        reader.findBySeed("seed3")*.getMatchId() == ["match3"]
+        reader.findByPlayer("second").size() == 20
+        reader.findByWinner("first").size() + reader.findByWinner("second").size() + reader.findByWinner(null).size() == 20
+
+        cleanup:
+        directory.deleteDir()
+    }
+
+    def "reopening an archive continues it and drops an interrupted write"() {
+        setup:
+        File directory = File.createTempDir()
+        LightridersArchiveWriter writer = new LightridersArchiveWriter(directory)
+        writer.append("a", "s1", ["x", "y"], 0, 10, '{"game":"a"}')
+        writer.append("b", "s2", ["y", "z"], LightridersArchiveEntry.DRAW, 12, '{"game":"b"}')
+        writer.close()
+
+        // Half written game and index entry, like after a crash
+        new File(directory, LightridersArchiveWriter.getSegmentFileName(0)).append('{"game":"c')
+        File indexFile = new File(directory, LightridersArchiveWriter.INDEX_FILE)
+        indexFile.append([0, 0, 0, 1, (byte) 'c'] as byte[])
+
+        writer = new LightridersArchiveWriter(directory)
+        writer.append("d", "s3", ["x", "z"], 1, 8, '{"game":"d"}')
+        writer.close()
+
+        LightridersArchiveReader reader = new LightridersArchiveReader(directory)
+
+        expect:
+        reader.getEntries()*.getMatchId() == ["a", "b", "d"]
+        reader.readPlayedGame("d") == '{"game":"d"}'
+        reader.readPlayedGame("b") == '{"game":"b"}'
+        reader.findByWinner("x")*.getMatchId() == ["a"]
+        reader.findByWinner("z")*.getMatchId() == ["d"]
+        reader.findByWinner(null)*.getMatchId() == ["b"]
+        new File(directory, LightridersArchiveWriter.getSegmentFileName(0)).text ==
+                '{"game":"a"}\n{"game":"b"}\n{"game":"d"}\n'
+
+        cleanup:
+        directory.deleteDir()
+    }
+
+    def "reopening an archive drops a segment started after the last entry"() {
+        setup:
+        File directory = File.createTempDir()
+        LightridersArchiveWriter writer = new LightridersArchiveWriter(directory, 8)
+        writer.append("a", "s1", ["x", "y"], 0, 10, '{"game":"a"}')
+        writer.append("b", "s2", ["y", "z"], 1, 12, '{"game":"b"}')
+        writer.close()
+
+        // Crash right after rolling over to a new segment
+        new File(directory, LightridersArchiveWriter.getSegmentFileName(2)).text = '{"game":"c'
+
+        writer = new LightridersArchiveWriter(directory, 8)
+        writer.append("d", "s3", ["x", "z"], 1, 8, '{"game":"d"}')
+        writer.close()
+
+        LightridersArchiveReader reader = new LightridersArchiveReader(directory)
+
+        expect:
+        reader.getEntries()*.getSegment() == [0, 1, 2]
+        reader.readPlayedGame("d") == '{"game":"d"}'
+        new File(directory, LightridersArchiveWriter.getSegmentFileName(2)).text == '{"game":"d"}\n'
+
+        cleanup:
+        directory.deleteDir()
+    }
+}
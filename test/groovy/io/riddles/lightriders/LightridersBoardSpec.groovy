@@ -0,0 +1,154 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders
+
+import io.riddles.lightriders.engine.LightridersEngine
+import io.riddles.lightriders.game.board.LightridersBoard
+import io.riddles.lightriders.game.board.LightridersOffHeapCellStorage
+import io.riddles.lightriders.game.state.LightridersState
+import spock.lang.Specification
+
+import java.awt.Point
+
+/**
+ * io.riddles.lightriders.LightridersBoardSpec
+ *
+ * Checks that the primitive board keeps the String field format.
+ *
+ * @author joost
+ */
+
+class LightridersBoardSpec extends Specification {
+
+    def "a new board is empty"() {
+        setup:
+        LightridersBoard board = new LightridersBoard(3, 2)
+
+        expect:
+        board.toString() == ".,.,.,.,.,."
+        board.isEmpty(new Point(2, 1))
+        !board.isEmpty(new Point(3, 1))
+        !board.isEmpty(new Point(-1, 0))
+    }
+
+    def "toString and setFieldsFromString are each others inverse"() {
+        setup:
+        String field = ".,x,12,.,0,x,.,.,255"
+        LightridersBoard board = new LightridersBoard(3, 3)
+
+        when:
+        board.setFieldsFromString(field)
+
+        then:
+        board.toString() == field
+        board.getFieldAt(new Point(2, 0)) == "12"
+        board.getFieldAt(new Point(1, 1)) == "0"
+        board.getFieldAt(new Point(2, 2)) == "255"
+        !board.isEmpty(new Point(1, 0))
+        board.isEmpty(new Point(0, 2))
+    }
+
+    def "cells can be set as player, blocked and empty"() {
+        setup:
+        LightridersBoard board = new LightridersBoard(2, 2)
+        Point point = new Point(1, 1)
+
+        when:
+        board.setPlayerAt(point, 3)
+
+        then:
+        board.getFieldAt(point) == "3"
+
+        when:
+        board.setBlocked(point)
+
+        then:
+        board.getFieldAt(point) == "x"
+
+        when:
+        board.setFieldAt(point, ".")
+
+        then:
+        board.isEmpty(point)
+    }
+
+    def "a copied board does not share cells with the original"() {
+        setup:
+        LightridersBoard board = new LightridersBoard(70, 2)
+        board.setPlayerAt(new Point(69, 1), 1)
+
+        when:
+        LightridersBoard copy = new LightridersBoard(board)
+        copy.setBlocked(new Point(0, 0))
+
+        then:
+        copy.getFieldAt(new Point(69, 1)) == "1"
+        board.isEmpty(new Point(0, 0))
+        !copy.isEmpty(new Point(0, 0))
+    }
+
+    def "off-heap boards keep the same cells as heap boards"() {
+        setup:
+        String field = ".,x,12,.,0,x,.,.,255"
+        File directory = File.createTempDir()
+        LightridersBoard direct = new LightridersBoard(3, 3, LightridersOffHeapCellStorage.allocate(9))
+        LightridersBoard mapped = new LightridersBoard(3, 3, LightridersOffHeapCellStorage.map(9, directory))
+
+        when:
+        direct.setFieldsFromString(field)
+        mapped.setFieldsFromString(field)
+        LightridersBoard copy = new LightridersBoard(mapped)
+        copy.setBlocked(new Point(0, 0))
+
+        then:
+        direct.toString() == field
+        mapped.toString() == field
+        !copy.isEmpty(new Point(0, 0))
+        mapped.isEmpty(new Point(0, 0))
+
+        cleanup:
+        directory.deleteDir()
+    }
+
+    def "the engine stores large fields off-heap"() {
+        expect:
+        LightridersEngine.createBoard(100, 100, 10000, "").toString() ==
+                new LightridersBoard(100, 100).toString()
+    }
+
+    def "the board of an earlier state is a shared read-only copy"() {
+        setup:
+        LightridersState initialState = LightridersEngine.createInitialState(16, 16, 2, new Random(1))
+        String initialField = initialState.getBoard().toString()
+        LightridersState nextState = initialState.createNextState(1)
+        nextState.getBoard().setBlocked(new Point(0, 0))
+
+        when:
+        LightridersBoard board = initialState.getBoard()
+        board.setBlocked(new Point(1, 1))
+
+        then:
+        thrown(UnsupportedOperationException)
+        initialState.getBoard().is(board)
+        board.toString() == initialField
+        !new LightridersBoard(board).isReadOnly()
+        !nextState.getBoard().isReadOnly()
+    }
+}
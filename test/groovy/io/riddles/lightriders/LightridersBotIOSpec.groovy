@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+
+package io.riddles.lightriders
+
+import io.riddles.lightriders.engine.LightridersEngine
+import io.riddles.lightriders.game.move.MoveType
+import io.riddles.lightriders.game.state.LightridersState
+import io.riddles.lightriders.server.LightridersBotConnection
+import io.riddles.lightriders.server.LightridersBotIO
+import io.riddles.lightriders.server.LightridersProcessBot
+import spock.lang.Specification
+
+/**
+ * io.riddles.lightriders.LightridersBotIOSpec
+ *
+ * Checks that bot processes read by one I/O loop answer, time out at
+ * their deadline and are given up on when they stop.
+ *
+ * @author joost
+ */
+
+class LightridersBotIOSpec extends Specification {
+
+    def "bots on one loop answer every move request"() {
+        setup:
+        LightridersBotIO io = new LightridersBotIO()
+        io.start()
+        LightridersState state = LightridersEngine.createInitialState(16, 16, 2, new Random(1))
+        List<LightridersProcessBot> bots = (0..9).collect {
+            new LightridersProcessBot("sh test/resources/echo_bot.sh", 2, -1, 10000, 200, io)
+        }
+        bots.each { it.setup(0, 16, 16) }
+
+        when:
+        List<MoveType> moves = []
+        for (int round = 0; round < 20; round++) {
+            bots.each { moves.add(it.getMove(state, 0)) }
+        }
+
+        then:
+        io.getConnectionCount() == 10
+        moves.size() == 200
+        moves.every { it == MoveType.UP }
+        bots.every { it.getResponseTimes().getCount() == 20 && it.getTimebank() > 9000 }
+
+        cleanup:
+        bots*.close()
+    }
+
+    def "a bot that doesn't answer times out when its timebank is used up"() {
+        setup:
+        LightridersBotIO io = new LightridersBotIO()
+        io.start()
+        LightridersState state = LightridersEngine.createInitialState(16, 16, 2, new Random(1))
+        LightridersProcessBot bot = new LightridersProcessBot(command, 2, -1, 300, 10, io)
+        bot.setup(0, 16, 16)
+
+        when:
+        long start = System.nanoTime()
+        bot.getMove(state, 0)
+
+        then:
+        thrown(IllegalStateException)
+        bot.getTimebank() == 0
+        (System.nanoTime() - start) / 1000000 >= minMillis
+        (System.nanoTime() - start) / 1000000 < 1000
+
+        cleanup:
+        bot.close()
+
+        where:
+        command                             | minMillis
+        "sh test/resources/silent_bot.sh"   | 300
+        "true"                              | 0
+    }
+
+    def "the time a bot takes to read its updates is charged to its timebank"() {
+        setup:
+        LightridersBotIO io = new LightridersBotIO()
+        io.start()
+        // The field is larger than the pipe buffer, so the bot has to read it before it is all sent
+        LightridersState state = LightridersEngine.createInitialState(200, 200, 2, new Random(1))
+        LightridersProcessBot bot = new LightridersProcessBot("sh test/resources/late_reader_bot.sh", 2, -1, 1000, 0, io)
+        bot.setup(0, 200, 200)
+
+        when:
+        MoveType move = bot.getMove(state, 0)
+
+        then:
+        move == MoveType.UP
+        bot.getTimebank() < 700
+        bot.getResponseTimes().getCount() == 1
+
+        cleanup:
+        bot.close()
+    }
+
+    def "a bot that answers too late is out of the match"() {
+        setup:
+        LightridersBotIO io = new LightridersBotIO()
+        io.start()
+        LightridersState state = LightridersEngine.createInitialState(16, 16, 2, new Random(1))
+        LightridersProcessBot bot = new LightridersProcessBot("sh test/resources/slow_bot.sh", 2, -1, 200, 10, io)
+        bot.setup(0, 16, 16)
+
+        when:
+        bot.getMove(state, 0)
+
+        then:
+        IllegalStateException timedOut = thrown()
+        timedOut.getMessage() == "Bot timed out"
+
+        when: "its late answer has arrived"
+        Thread.sleep(600)
+        bot.getMove(state, 0)
+
+        then:
+        IllegalStateException out = thrown()
+        out.getMessage() == "Bot timed out in an earlier round"
+
+        cleanup:
+        bot.close()
+    }
+
+    def "a bot that doesn't read its input fails at the write deadline without blocking the match"() {
+        setup:
+        LightridersBotIO io = new LightridersBotIO()
+        io.start()
+        LightridersBotConnection connection = io.connect("sh test/resources/" + script)
+        String field = "." * (4 * 1024 * 1024)
+
+        when:
+        long start = System.nanoTime()
+        boolean sent = connection.send(field, 300000000L)
+        long sendMillis = (System.nanoTime() - start) / 1000000
+        String response = connection.request("action move 10000", 5000000000L)
+
+        then:
+        sent
+        sendMillis < 100
+        response == null
+        connection.isClosed()
+        (System.nanoTime() - start) / 1000000 >= 300
+        (System.nanoTime() - start) / 1000000 < 2000
+
+        cleanup:
+        connection.close()
+
+        where:
+        script << ["deaf_bot.sh", "deaf_parent_bot.sh"]
+    }
+}
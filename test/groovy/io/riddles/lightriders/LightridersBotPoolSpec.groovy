@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+
+package io.riddles.lightriders
+
+import io.riddles.lightriders.engine.LightridersEngine
+import io.riddles.lightriders.game.move.MoveType
+import io.riddles.lightriders.game.state.LightridersState
+import io.riddles.lightriders.server.LightridersBotIO
+import io.riddles.lightriders.server.LightridersBotPool
+import io.riddles.lightriders.server.LightridersProcessBot
+import spock.lang.Specification
+
+/**
+ * io.riddles.lightriders.LightridersBotPoolSpec
+ *
+ * Checks that bots that answer the reset are reused for new matches
+ * and that other bots are replaced by new processes.
+ *
+ * @author joost
+ */
+
+class LightridersBotPoolSpec extends Specification {
+
+    def "bots are reused only when they are ready for a new match"() {
+        setup:
+        LightridersBotIO io = new LightridersBotIO()
+        io.start()
+        LightridersBotPool pool = new LightridersBotPool(io, 4, 100, 300)
+        LightridersState state = LightridersEngine.createInitialState(16, 16, 2, new Random(1))
+
+        when:
+        List<MoveType> moves = []
+        for (int match = 0; match < 3; match++) {
+            LightridersProcessBot bot = new LightridersProcessBot(command, 2, -1, 10000, 200, pool)
+            bot.setup(match % 2, 16, 16)
+            moves.add(bot.getMove(state, match % 2))
+            bot.close()
+        }
+
+        then:
+        moves == [MoveType.UP] * 3
+        pool.getStartedCount() == started
+        pool.getReusedCount() == reused
+        pool.getKilledCount() == killed
+        pool.getIdleCount() == 1
+
+        cleanup:
+        pool.close()
+
+        where:
+        command                             | started | reused | killed
+        "sh test/resources/pooled_bot.sh"   | 1       | 2      | 0
+        "sh test/resources/echo_bot.sh"     | 3       | 0      | 2
+    }
+
+    def "bots that time out are not reused"() {
+        setup:
+        LightridersBotIO io = new LightridersBotIO()
+        io.start()
+        LightridersBotPool pool = new LightridersBotPool(io, 4, 100, 300)
+        LightridersState state = LightridersEngine.createInitialState(16, 16, 2, new Random(1))
+        LightridersProcessBot bot = new LightridersProcessBot("sh test/resources/silent_bot.sh", 2, -1, 100, 10, pool)
+        bot.setup(0, 16, 16)
+
+        when:
+        bot.getMove(state, 0)
+
+        then:
+        thrown(IllegalStateException)
+
+        when:
+        bot.close()
+
+        then:
+        pool.getIdleCount() == 0
+        pool.getKilledCount() == 1
+
+        cleanup:
+        pool.close()
+    }
+}
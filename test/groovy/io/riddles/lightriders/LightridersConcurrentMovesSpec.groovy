@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+
+package io.riddles.lightriders
+
+import io.riddles.javainterface.configuration.Configuration
+import io.riddles.javainterface.game.player.PlayerProvider
+import io.riddles.javainterface.io.IOHandler
+import io.riddles.lightriders.engine.LightridersEngine
+import io.riddles.lightriders.game.player.LightridersPlayer
+import io.riddles.lightriders.game.processor.LightridersProcessor
+import io.riddles.lightriders.game.state.LightridersState
+import spock.lang.Specification
+
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * io.riddles.lightriders.LightridersConcurrentMovesSpec
+ *
+ * Checks requesting moves at the same time with bots that answer too late.
+ *
+ * @author joost
+ */
+
+class LightridersConcurrentMovesSpec extends Specification {
+
+    def "a round waits at most the move timeout for all bots together"() {
+        setup:
+        List<SlowPlayer> players = (0..2).collect { new SlowPlayer(it, 400) }
+        LightridersProcessor processor = createProcessor(players, 150)
+        LightridersState state = LightridersEngine.createInitialState(64, 64, 3, new Random(1))
+
+        when:
+        long start = System.nanoTime()
+        LightridersState nextState = processor.createNextState(state, 1)
+        long elapsedMillis = (System.nanoTime() - start) / 1000000
+
+        then:
+        elapsedMillis < 300
+        nextState.getPlayerStates().every { it.getMove().getException() != null }
+    }
+
+    def "a bot that answers too late gets nothing until its answer has arrived"() {
+        setup:
+        SlowPlayer slowPlayer = new SlowPlayer(0, 300)
+        SlowPlayer fastPlayer = new SlowPlayer(1, 0)
+        LightridersProcessor processor = createProcessor([slowPlayer, fastPlayer], 100)
+        LightridersState state = LightridersEngine.createInitialState(64, 64, 2, new Random(1))
+
+        when:
+        for (int round = 1; round <= 6; round++) {
+            state = processor.createNextState(state, round)
+            Thread.sleep(50)
+        }
+
+        then:
+        !slowPlayer.overlapped.get()
+        slowPlayer.requests.get() > 1
+        slowPlayer.requests.get() < 6
+        fastPlayer.requests.get() == 6
+    }
+
+    def "a bot that missed rounds gets the full field again"() {
+        setup:
+        SlowPlayer slowPlayer = new SlowPlayer(0, 300)
+        SlowPlayer fastPlayer = new SlowPlayer(1, 0)
+        LightridersProcessor processor = createProcessor([slowPlayer, fastPlayer], 100, 1)
+        LightridersState state = LightridersEngine.createInitialState(64, 64, 2, new Random(1))
+
+        when:
+        for (int round = 1; round <= 6; round++) {
+            state = processor.createNextState(state, round)
+            Thread.sleep(50)
+        }
+
+        then:
+        slowPlayer.fieldUpdates.take(2) == ["field", "field"]
+        slowPlayer.fieldUpdates.drop(2).every { it == "field_delta" }
+        fastPlayer.fieldUpdates == ["field"] + ["field_delta"] * 5
+    }
+
+    private static LightridersProcessor createProcessor(List<SlowPlayer> players, int moveTimeout) {
+        return createProcessor(players, moveTimeout, 0)
+    }
+
+    private static LightridersProcessor createProcessor(List<SlowPlayer> players, int moveTimeout, int fieldDeltas) {
+        Configuration configuration = new Configuration()
+        configuration.put("maxRounds", -1)
+        configuration.put("adjudicate", 0)
+        configuration.put("concurrentMoves", 1)
+        configuration.put("moveTimeout", moveTimeout)
+        configuration.put("fieldDeltas", fieldDeltas)
+
+        PlayerProvider<LightridersPlayer> playerProvider = new PlayerProvider<>()
+        players.each { playerProvider.add(it) }
+
+        return new LightridersProcessor(playerProvider, configuration)
+    }
+
+    /**
+     * Takes long to answer its first move request, then answers right away,
+     * and remembers whether anything was sent while a request was running.
+     */
+    private static class SlowPlayer extends LightridersPlayer {
+
+        long firstMoveDelay
+        AtomicBoolean busy = new AtomicBoolean()
+        AtomicBoolean overlapped = new AtomicBoolean()
+        AtomicInteger requests = new AtomicInteger()
+        List<String> fieldUpdates = [].asSynchronized()
+
+        SlowPlayer(int id, long firstMoveDelay) {
+            super(id)
+            this.firstMoveDelay = firstMoveDelay
+            setIoHandler(new IOHandler())
+        }
+
+        @Override
+        void sendUpdate(String type, String value) {
+            checkIdle()
+            if (type.startsWith("field")) {
+                fieldUpdates.add(type)
+            }
+        }
+
+        @Override
+        void sendUpdate(String type, int value) {
+            checkIdle()
+        }
+
+        @Override
+        void sendWarning(String warning) {
+            checkIdle()
+        }
+
+        @Override
+        String requestMove(Enum actionType) {
+            if (!busy.compareAndSet(false, true)) {
+                overlapped.set(true)
+            }
+            if (requests.getAndIncrement() == 0) {
+                Thread.sleep(firstMoveDelay)
+            }
+            busy.set(false)
+            return "pass"
+        }
+
+        private void checkIdle() {
+            if (busy.get()) {
+                overlapped.set(true)
+            }
+        }
+    }
+}
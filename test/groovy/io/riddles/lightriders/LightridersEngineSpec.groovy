@@ -26,10 +26,13 @@ import io.riddles.lightriders.engine.LightridersEngine
 import io.riddles.javainterface.io.IOHandler
 import io.riddles.lightriders.game.player.LightridersPlayer
 import io.riddles.lightriders.game.processor.LightridersProcessor
+import io.riddles.lightriders.game.state.LightridersPlayerState
 import io.riddles.lightriders.game.state.LightridersState
 import spock.lang.Specification
 import spock.lang.Ignore
 
+import java.awt.Point
+
 /**
  * io.riddles.lightriders.engine.LightridersEngineSpec - Created on 8-6-16
  *
@@ -83,5 +86,42 @@ class LightridersEngineSpec extends Specification {
 
     }
 
+    def "players of any amount start on separate cells with room in front of them"() {
+        setup:
+        LightridersState state = LightridersEngine.createInitialState(width, height, playerCount, new Random(seed))
+        List<LightridersPlayerState> playerStates = state.getPlayerStates()
+
+        expect:
+        playerStates.collect { it.getCoordinate() }.unique().size() == playerCount
+        playerStates.every { LightridersPlayerState playerState ->
+            Point front = new Point(
+                    (int) playerState.getCoordinate().x + playerState.getDirection().getDeltaX(),
+                    (int) playerState.getCoordinate().y + playerState.getDirection().getDeltaY())
+            state.getBoard().isEmpty(front)
+        }
+
+        where:
+        playerCount | width | height | seed
+        3           | 16    | 16     | 1
+        5           | 16    | 16     | 2
+        6           | 20    | 12     | 3
+        8           | 24    | 24     | 4
+        2           | 6     | 3      | 5
+        4           | 6     | 6      | 6
+    }
+
+    def "a field that is too small gives a clear error"() {
+        when:
+        LightridersEngine.createInitialState(width, height, playerCount, new Random(1))
 
-}
\ No newline at end of file
+        then:
+        RuntimeException ex = thrown()
+        ex.getMessage().contains("too small")
+
+        where:
+        playerCount | width | height
+        3           | 3     | 3
+        2           | 5     | 20
+        4           | 16    | 5
+    }
+}
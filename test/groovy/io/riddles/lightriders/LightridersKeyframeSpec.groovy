@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+
+package io.riddles.lightriders
+
+import io.riddles.javainterface.configuration.Configuration
+import io.riddles.javainterface.game.player.PlayerProvider
+import io.riddles.lightriders.engine.LightridersEngine
+import io.riddles.lightriders.game.LightridersSerializer
+import io.riddles.lightriders.game.move.LightridersMove
+import io.riddles.lightriders.game.player.LightridersPlayer
+import io.riddles.lightriders.game.processor.LightridersLogic
+import io.riddles.lightriders.game.processor.LightridersProcessor
+import io.riddles.lightriders.game.replay.LightridersBoardSeeker
+import io.riddles.lightriders.game.state.LightridersPlayerState
+import io.riddles.lightriders.game.state.LightridersState
+import io.riddles.lightriders.tournament.SafeMoveBot
+import spock.lang.Specification
+
+/**
+ * io.riddles.lightriders.LightridersKeyframeSpec
+ *
+ * Checks that seeking to a round, in memory and in a played game, gives
+ * the same board as the one that was played.
+ *
+ * @author joost
+ */
+
+class LightridersKeyframeSpec extends Specification {
+
+    def "seeking gives the board of every round"() {
+        setup:
+        LightridersState initialState = LightridersEngine.createInitialState(24, 24, 4, new Random(7))
+        initialState.setKeyframeInterval(keyframeInterval)
+        List<String> boards = [initialState.getBoard().toString()]
+        List<SafeMoveBot> bots = (0..3).collect { new SafeMoveBot() }
+        bots.eachWithIndex { bot, id -> bot.setup(id, 24, 24) }
+
+        LightridersState state = initialState
+        while (state.getAlivePlayerIds().size() > 1) {
+            LightridersState nextState = state.createNextState(state.getRoundNumber() + 1)
+            for (LightridersPlayerState playerState : nextState.getPlayerStates()) {
+                if (playerState.isAlive()) {
+                    playerState.setMove(LightridersMove.of(bots[playerState.getPlayerId()].getMove(state, playerState.getPlayerId())))
+                }
+            }
+            LightridersLogic.transform(nextState)
+            state = nextState
+            boards.add(state.getBoard().toString())
+        }
+
+        String playedGame = new LightridersSerializer().traverseToString(createProcessor(keyframeInterval), initialState)
+        LightridersBoardSeeker seeker = new LightridersBoardSeeker(playedGame)
+
+        expect:
+        boards.size() > 2 * keyframeInterval
+        seeker.getLastRound() == state.getRoundNumber()
+        (0..state.getRoundNumber()).every { round ->
+            state.getBoardAtRound(round).toString() == boards[round] &&
+                    seeker.seek(round).toString() == boards[round]
+        }
+        // Seeking from an older state and walking the states give the same boards
+        initialState.getNextState().getNextState().getBoardAtRound(1).toString() == boards[1]
+        initialState.getNextState().getBoard().toString() == boards[1]
+
+        where:
+        keyframeInterval << [1, 3, 16]
+    }
+
+    def "a played game has no changes or keyframes unless they are asked for"() {
+        setup:
+        LightridersState initialState = LightridersEngine.createInitialState(8, 8, 2, new Random(7))
+        initialState.createNextState(1)
+
+        when:
+        String playedGame = new LightridersSerializer().traverseToString(createProcessor(0), initialState)
+
+        then:
+        !playedGame.contains("changes")
+        !playedGame.contains("keyframe")
+    }
+
+    private static LightridersProcessor createProcessor(int keyframeInterval) {
+        Configuration configuration = new Configuration()
+        configuration.put("maxRounds", -1)
+        configuration.put("metrics", 0)
+        configuration.put("adjudicate", 0)
+        configuration.put("keyframeInterval", keyframeInterval)
+
+        PlayerProvider<LightridersPlayer> playerProvider = new PlayerProvider<>()
+        (0..3).each { playerProvider.add(new LightridersPlayer(it)) }
+
+        return new LightridersProcessor(playerProvider, configuration)
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+
+package io.riddles.lightriders
+
+import com.sun.management.ThreadMXBean
+import groovy.transform.CompileStatic
+import io.riddles.lightriders.game.board.LightridersBoard
+import io.riddles.lightriders.game.move.LightridersMove
+import io.riddles.lightriders.game.move.MoveType
+import io.riddles.lightriders.game.processor.LightridersLogic
+import io.riddles.lightriders.game.state.LightridersPlayerState
+import io.riddles.lightriders.game.state.LightridersState
+import spock.lang.Specification
+
+import java.awt.Point
+import java.lang.management.ManagementFactory
+
+/**
+ * io.riddles.lightriders.LightridersLogicSpec
+ *
+ * Checks that transforming a state doesn't allocate, so long running
+ * engines don't build up garbage every round.
+ *
+ * @author joost
+ */
+
+class LightridersLogicSpec extends Specification {
+
+    def "transforming a state does not allocate"() {
+        setup:
+        ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean()
+        ArrayList<LightridersPlayerState> playerStates = new ArrayList<>()
+        for (int id = 0; id < 4; id++) {
+            playerStates.add(new LightridersPlayerState(id))
+        }
+        LightridersState state = new LightridersState(playerStates, new LightridersBoard(256, 16))
+        for (int id = 0; id < 4; id++) {
+            state.setPlayerCoordinate(id, new Point(1, id * 4 + 1))
+            state.getPlayerStates().get(id).setDirection(MoveType.RIGHT)
+        }
+
+        when:
+        LightridersState warmedUp = playRounds(state, 1, 50, null)
+        long[] allocated = new long[1]
+        LightridersState last = playRounds(warmedUp, 51, 200, allocated)
+
+        then:
+        threadBean.isThreadAllocatedMemorySupported()
+        last.getAlivePlayerIds().size() == 4
+        allocated[0] == 0
+    }
+
+    /**
+     * Plays rounds in which every player zigzags to the right, adding the
+     * bytes allocated by LightridersLogic.transform() to allocated.
+     */
+    @CompileStatic
+    private static LightridersState playRounds(LightridersState state, int firstRound, int lastRound,
+                                               long[] allocated) {
+        ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean()
+        long threadId = Thread.currentThread().getId()
+        MoveType[] moves = [MoveType.RIGHT, MoveType.DOWN, MoveType.RIGHT, MoveType.UP] as MoveType[]
+        LightridersState current = state
+
+        for (int round = firstRound; round <= lastRound; round++) {
+            LightridersState next = current.createNextState(round)
+            for (LightridersPlayerState playerState : next.getPlayerStates()) {
+                playerState.setMove(new LightridersMove(moves[round % moves.length]))
+            }
+            next.getBoard()
+
+            long before = threadBean.getThreadAllocatedBytes(threadId)
+            LightridersLogic.transform(next)
+            long after = threadBean.getThreadAllocatedBytes(threadId)
+
+            if (allocated != null) {
+                allocated[0] += after - before
+            }
+            current = next
+        }
+
+        return current
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+
+package io.riddles.lightriders
+
+import io.riddles.lightriders.metrics.LightridersLatencyHistogram
+import io.riddles.lightriders.metrics.LightridersMetrics
+import spock.lang.Specification
+
+/**
+ * io.riddles.lightriders.LightridersMetricsSpec
+ *
+ * Checks the latency histogram and the metrics section of a match.
+ *
+ * @author joost
+ */
+
+class LightridersMetricsSpec extends Specification {
+
+    def "percentiles of the latency histogram are close to the recorded latencies"() {
+        setup:
+        LightridersLatencyHistogram histogram = new LightridersLatencyHistogram()
+
+        when:
+        for (int micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000L)
+        }
+
+        then:
+        histogram.getCount() == 1000
+        histogram.getMaxMicros() == 1000
+        Math.abs(histogram.getPercentileMicros(50) - 500) <= 500 * 0.125
+        Math.abs(histogram.getPercentileMicros(99) - 990) <= 990 * 0.125
+    }
+
+    def "metrics are kept per bot"() {
+        setup:
+        LightridersMetrics metrics = new LightridersMetrics()
+
+        when:
+        metrics.addMoveLatency(1, 2000000L)
+        metrics.addMoveLatency(0, 1000000L)
+        metrics.addBytesSent(1, 20)
+        metrics.addRound()
+
+        then:
+        metrics.getMoveCount() == 2
+        metrics.getBytesSent() == 20
+        metrics.toJson().getInt("rounds") == 1
+        metrics.toJson().getJSONArray("bots").getJSONObject(0).getInt("id") == 0
+        metrics.toJson().getJSONArray("bots").getJSONObject(1).getLong("bytesSent") == 20
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+
+package io.riddles.lightriders
+
+import io.riddles.lightriders.engine.LightridersEngine
+import io.riddles.lightriders.engine.LightridersRandom
+import io.riddles.lightriders.game.state.LightridersState
+import spock.lang.Specification
+
+import java.awt.Point
+
+/**
+ * io.riddles.lightriders.LightridersRandomSpec
+ *
+ * Checks that the random generator gives the documented sequence for a
+ * seed and that derived generators don't depend on the parent.
+ *
+ * @author joost
+ */
+
+class LightridersRandomSpec extends Specification {
+
+    def "a seed always gives the same sequence"() {
+        setup:
+        LightridersRandom random = new LightridersRandom("abc")
+
+        expect:
+        random.getSeed() == 0x0dd490490804b508L
+        random.nextLong() == 0x69f9ef061f6f21a3L
+        random.nextLong() == 0x48204f0e34041746L
+        random.nextLong() == 0x942dde1430d68542L
+        LightridersRandom.deriveSeed("abc", 0) == "c668c6e7ba9b7c0b"
+    }
+
+    def "derived generators don't depend on the parent's position"() {
+        setup:
+        LightridersRandom fresh = new LightridersRandom("batch")
+        LightridersRandom used = new LightridersRandom("batch")
+        used.nextLong()
+        used.nextInt(10)
+
+        expect:
+        fresh.derive(3).nextLong() == used.derive(3).nextLong()
+        fresh.derive(3).nextLong() != fresh.derive(4).nextLong()
+        new LightridersRandom(LightridersRandom.deriveSeed("batch", 3)).nextLong() == fresh.derive(3).nextLong()
+    }
+
+    def "games with the same seed start the same"() {
+        setup:
+        LightridersState first = LightridersEngine.createInitialState(16, 16, 4, LightridersEngine.createRandom("seed"))
+        LightridersState second = LightridersEngine.createInitialState(16, 16, 4, LightridersEngine.createRandom("seed"))
+
+        expect:
+        first.getPlayerStates().collect { it.getCoordinate() } == second.getPlayerStates().collect { it.getCoordinate() }
+    }
+
+    def "a seed always gives the same start positions on a circle"() {
+        setup:
+        LightridersState state = LightridersEngine.createInitialState(16, 16, 5, LightridersEngine.createRandom("seed"))
+
+        expect:
+        state.getPlayerStates().collect { it.getCoordinate() } ==
+                [new Point(13, 7), new Point(9, 12), new Point(4, 11), new Point(3, 5), new Point(9, 2)]
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+
+package io.riddles.lightriders
+
+import io.riddles.javainterface.configuration.Configuration
+import io.riddles.javainterface.game.player.PlayerProvider
+import io.riddles.lightriders.engine.LightridersEngine
+import io.riddles.lightriders.game.board.LightridersBoard
+import io.riddles.lightriders.game.move.LightridersMove
+import io.riddles.lightriders.game.move.MoveType
+import io.riddles.lightriders.game.player.LightridersPlayer
+import io.riddles.lightriders.game.processor.LightridersLogic
+import io.riddles.lightriders.game.processor.LightridersProcessor
+import io.riddles.lightriders.game.processor.LightridersRegionIndex
+import io.riddles.lightriders.game.state.LightridersPlayerState
+import io.riddles.lightriders.game.state.LightridersState
+import spock.lang.Specification
+
+import java.awt.Point
+
+/**
+ * io.riddles.lightriders.LightridersRegionIndexSpec
+ *
+ * Checks the incrementally updated regions against labeling the
+ * board again, and the adjudication of sealed off players.
+ *
+ * @author joost
+ */
+
+class LightridersRegionIndexSpec extends Specification {
+
+    def "updated regions match regions labeled from scratch"() {
+        setup:
+        Random random = new Random(seed)
+        LightridersState state = LightridersEngine.createInitialState(16, 16, 4, new Random(seed))
+        LightridersBoard board = state.getBoard()
+        LightridersRegionIndex index = new LightridersRegionIndex(16, 16)
+        index.rebuild(board)
+
+        when:
+        boolean same = true
+        int round = 0
+        while (state.getAlivePlayerIds().size() > 1) {
+            round++
+            state = state.createNextState(round)
+            for (LightridersPlayerState playerState : state.getPlayerStates()) {
+                playerState.setMove(LightridersMove.of(MoveType.values()[random.nextInt(4)]))
+            }
+            LightridersLogic.transform(state)
+            index.update(state.getBoard(), state.getRoundChanges())
+
+            LightridersRegionIndex expected = new LightridersRegionIndex(16, 16)
+            expected.rebuild(state.getBoard())
+            for (int x = 0; x < 16; x++) {
+                for (int y = 0; y < 16; y++) {
+                    same &= index.getRegionSize(index.getRegion(x, y)) ==
+                            expected.getRegionSize(expected.getRegion(x, y))
+                }
+            }
+            same &= index.arePlayersIsolated(state.getPlayerStates()) ==
+                    expected.arePlayersIsolated(state.getPlayerStates())
+        }
+
+        then:
+        same
+
+        where:
+        seed << [1, 2, 3, 4, 5]
+    }
+
+    def "a game ends when the players are sealed off from each other"() {
+        setup:
+        Configuration configuration = new Configuration()
+        configuration.put("maxRounds", -1)
+        configuration.put("adjudicate", 1)
+
+        PlayerProvider<LightridersPlayer> playerProvider = new PlayerProvider<>()
+        playerProvider.add(new LightridersPlayer(0))
+        playerProvider.add(new LightridersPlayer(1))
+        LightridersProcessor processor = new LightridersProcessor(playerProvider, configuration)
+
+        LightridersState open = createState()
+        LightridersState sealed = createState()
+
+        when: "a wall splits the field in a left part of 8 cells and a right part of 12 cells"
+        for (int y = 0; y < 4; y++) {
+            sealed.getBoard().setBlocked(new Point(2, y))
+        }
+
+        then:
+        !processor.hasGameEnded(open)
+        processor.hasGameEnded(sealed)
+        processor.getWinnerId(sealed) == 1
+        processor.getAdjudicatedRegionSizes() == [7, 11] as int[]
+    }
+
+    private static LightridersState createState() {
+        ArrayList<LightridersPlayerState> playerStates = new ArrayList<>()
+        playerStates.add(new LightridersPlayerState(0))
+        playerStates.add(new LightridersPlayerState(1))
+
+        LightridersState state = new LightridersState(playerStates, new LightridersBoard(6, 4))
+        state.setPlayerCoordinate(0, new Point(1, 1))
+        state.setPlayerCoordinate(1, new Point(4, 1))
+
+        return state
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package io.riddles.lightriders
+
+import io.riddles.javainterface.configuration.Configuration
+import io.riddles.javainterface.exception.InvalidInputException
+import io.riddles.javainterface.game.player.PlayerProvider
+import io.riddles.lightriders.engine.LightridersEngine
+import io.riddles.lightriders.game.LightridersSerializer
+import io.riddles.lightriders.game.board.LightridersBoard
+import io.riddles.lightriders.game.move.LightridersMove
+import io.riddles.lightriders.game.move.MoveType
+import io.riddles.lightriders.game.player.LightridersPlayer
+import io.riddles.lightriders.game.processor.LightridersProcessor
+import io.riddles.lightriders.game.processor.LightridersLogic
+import io.riddles.lightriders.game.replay.LightridersReplay
+import io.riddles.lightriders.game.replay.LightridersReplayDecoder
+import io.riddles.lightriders.game.replay.LightridersReplayEncoder
+import io.riddles.lightriders.game.replay.LightridersReplaySimulator
+import io.riddles.lightriders.game.state.LightridersPlayerState
+import io.riddles.lightriders.game.state.LightridersState
+import io.riddles.lightriders.game.state.LightridersStateDeserializer
+import io.riddles.lightriders.game.state.LightridersStateSerializer
+import org.json.JSONObject
+import spock.lang.Specification
+
+import java.awt.Point
+
+/**
+ * io.riddles.lightriders.LightridersReplaySpec
+ *
+ * Checks that a game can be played again from its recorded replays.
+ *
+ * @author joost
+ */
+
+class LightridersReplaySpec extends Specification {
+
+    static List<String> moves0 = ["up", "down", "garbage", "left", "down", "right", "right", "down"]
+    static List<String> moves1 = ["pass", "down", "down", "right", "up", "left", "left", "up"]
+
+    static LightridersState playGame() {
+        ArrayList<LightridersPlayerState> playerStates = new ArrayList<>()
+        playerStates.add(new LightridersPlayerState(0))
+        playerStates.add(new LightridersPlayerState(1))
+
+        LightridersState initialState = new LightridersState(playerStates, new LightridersBoard(8, 8))
+        initialState.setPlayerCoordinate(0, new Point(2, 4))
+        initialState.setPlayerCoordinate(1, new Point(5, 4))
+        playerStates.get(0).setDirection(MoveType.RIGHT)
+        playerStates.get(1).setDirection(MoveType.LEFT)
+
+        LightridersState state = initialState
+        for (int round = 1; round <= moves0.size(); round++) {
+            state = state.createNextState(round)
+            state.getPlayerStates().each { LightridersPlayerState playerState ->
+                if (!playerState.isAlive()) return
+                String input = (playerState.getPlayerId() == 0 ? moves0 : moves1).get(round - 1)
+                LightridersMove move = input == "garbage" ?
+                        new LightridersMove(new InvalidInputException("Move isn't valid")) :
+                        new LightridersMove(MoveType.valueOf(input.toUpperCase()))
+                playerState.setMove(move)
+            }
+            LightridersLogic.transform(state)
+        }
+
+        return initialState
+    }
+
+    static List<String> toJson(LightridersState initialState) {
+        LightridersStateSerializer serializer = new LightridersStateSerializer()
+        List<String> states = []
+        LightridersState state = initialState
+        states.add(serializer.traverseToString(state))
+        while (state.hasNextState()) {
+            state = (LightridersState) state.getNextState()
+            states.add(serializer.traverseToString(state))
+        }
+        return states
+    }
+
+    def "a decoded binary replay plays the same game"() {
+        setup:
+        LightridersState initialState = playGame()
+        LightridersReplay replay = LightridersReplay.fromStates(initialState, -1, "seed")
+        ByteArrayOutputStream output = new ByteArrayOutputStream()
+
+        when:
+        new LightridersReplayEncoder().encode(replay, output)
+        LightridersReplay decoded = new LightridersReplayDecoder().decode(
+                new ByteArrayInputStream(output.toByteArray()))
+
+        then:
+        decoded.getSeed() == "seed"
+        decoded.getRoundCount() == replay.getRoundCount()
+        decoded.getErrors().size() == 1
+        toJson(decoded.toStates()) == toJson(initialState)
+        toJson(initialState).any { it.contains("opposite") }
+    }
+
+    def "players on a circle start in the same direction when read back from JSON"() {
+        setup:
+        LightridersState initialState = LightridersEngine.createInitialState(16, 16, 3, new Random(seed))
+        String statesJson = "[" + toJson(initialState).join(",") + "]"
+
+        when:
+        LightridersState state = new LightridersStateDeserializer(new ArrayList<>(), 16, 16).traverse(statesJson)
+
+        then:
+        state.getPlayerStates()*.getDirection() == initialState.getPlayerStates()*.getDirection()
+
+        where:
+        seed << [1, 2, 3, 4, 5, 6]
+    }
+
+    def "missing and empty strings survive encoding"() {
+        setup:
+        LightridersReplay replay = LightridersReplay.fromStates(playGame(), -1, null)
+        replay.addError(1, 0, null)
+        replay.addError(2, 1, "")
+        ByteArrayOutputStream output = new ByteArrayOutputStream()
+
+        when:
+        new LightridersReplayEncoder().encode(replay, output)
+        LightridersReplay decoded = new LightridersReplayDecoder().decode(
+                new ByteArrayInputStream(output.toByteArray()))
+
+        then:
+        decoded.getSeed() == null
+        decoded.getErrors()[-2].message == null
+        decoded.getErrors()[-1].message == ""
+    }
+
+    def "the states of a game can be read back from its JSON"() {
+        setup:
+        LightridersState initialState = playGame()
+        String statesJson = "[" + toJson(initialState).join(",") + "]"
+        LightridersStateDeserializer deserializer = new LightridersStateDeserializer(new ArrayList<>(), 8, 8)
+
+        when:
+        LightridersState finalState = deserializer.traverse(statesJson)
+        LightridersState state = finalState
+        while (state.getPreviousState() != null) state = state.getPreviousState()
+
+        then:
+        toJson(state) == toJson(initialState)
+        finalState.getBoard().toString() == new LightridersReplaySimulator().simulateToEnd(
+                LightridersReplay.fromStates(initialState, -1, "seed")).getBoard().toString()
+    }
+
+    def "a binary replay decodes to the played game without an engine configuration"() {
+        setup:
+        Configuration engineConfiguration = LightridersEngine.configuration
+        LightridersEngine.configuration = null
+        LightridersState initialState = playGame()
+        ByteArrayOutputStream output = new ByteArrayOutputStream()
+        new LightridersReplayEncoder().encode(LightridersReplay.fromStates(initialState, -1, "seed"), output)
+
+        PlayerProvider<LightridersPlayer> playerProvider = new PlayerProvider<>()
+        playerProvider.add(new LightridersPlayer(0))
+        playerProvider.add(new LightridersPlayer(1))
+
+        when:
+        String playedGame = new LightridersReplayDecoder().decodeToJson(
+                new ByteArrayInputStream(output.toByteArray()))
+
+        then:
+        playedGame == new LightridersSerializer().traverseToString(
+                new LightridersProcessor(playerProvider), initialState)
+        !new JSONObject(playedGame).has("metrics")
+        new JSONObject(playedGame).getJSONArray("states").length() == moves0.size() + 1
+
+        cleanup:
+        LightridersEngine.configuration = engineConfiguration
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+
+package io.riddles.lightriders
+
+import io.riddles.lightriders.engine.LightridersEngine
+import io.riddles.lightriders.game.move.LightridersMove
+import io.riddles.lightriders.game.move.MoveType
+import io.riddles.lightriders.game.processor.LightridersLogic
+import io.riddles.lightriders.game.state.LightridersPlayerState
+import io.riddles.lightriders.game.state.LightridersState
+import io.riddles.lightriders.search.LightridersSearchState
+import io.riddles.lightriders.search.LightridersUndoRecord
+import spock.lang.Specification
+
+/**
+ * io.riddles.lightriders.LightridersSearchSpec
+ *
+ * Checks that the search state plays the same game as a real match
+ * and that undoing moves restores the position exactly.
+ *
+ * @author joost
+ */
+
+class LightridersSearchSpec extends Specification {
+
+    def "making moves plays the same game as transforming states"() {
+        setup:
+        Random random = new Random(seed)
+        LightridersState state = LightridersEngine.createInitialState(12, 12, players, new Random(seed))
+        LightridersSearchState search = new LightridersSearchState(state)
+
+        when:
+        boolean same = true
+        int round = 0
+        while (state.getAlivePlayerIds().size() > 1) {
+            round++
+            MoveType[] moves = randomMoves(random, players)
+
+            LightridersState nextState = state.createNextState(round)
+            for (LightridersPlayerState playerState : nextState.getPlayerStates()) {
+                playerState.setMove(LightridersMove.of(moves[playerState.getPlayerId()]))
+            }
+            LightridersLogic.transform(nextState)
+            state = nextState
+
+            search.makeMove(moves)
+            same &= search.getBoard().toString() == state.getBoard().toString()
+            same &= search.getAliveCount() == state.getAlivePlayerIds().size()
+        }
+
+        then:
+        same
+        search.isFinished()
+
+        where:
+        seed | players
+        1    | 2
+        2    | 4
+        3    | 7
+    }
+
+    def "undoing all moves restores the starting position"() {
+        setup:
+        Random random = new Random(5)
+        LightridersState state = LightridersEngine.createInitialState(10, 10, 4, random)
+        LightridersSearchState search = new LightridersSearchState(state)
+        String field = search.getBoard().toString()
+        ArrayList<LightridersUndoRecord> undoRecords = new ArrayList<>()
+
+        when:
+        while (!search.isFinished()) {
+            undoRecords.add(search.makeMove(randomMoves(random, 4)))
+        }
+        for (int i = undoRecords.size() - 1; i >= 0; i--) {
+            search.unmakeMove(undoRecords.get(i))
+        }
+
+        then:
+        search.getBoard().toString() == field
+        search.getRoundNumber() == 0
+        search.getAliveCount() == 4
+        (0..3).every {
+            search.getPlayerState(it).getCoordinate() == state.getPlayerStates().get(it).getCoordinate() &&
+                    search.getPlayerState(it).getDirection() == state.getPlayerStates().get(it).getDirection()
+        }
+    }
+
+    private static MoveType[] randomMoves(Random random, int players) {
+        MoveType[] moves = new MoveType[players]
+        for (int i = 0; i < players; i++) {
+            moves[i] = MoveType.values()[random.nextInt(MoveType.values().length)]
+        }
+
+        return moves
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+
+package io.riddles.lightriders
+
+import io.riddles.lightriders.engine.LightridersEngine
+import io.riddles.lightriders.game.move.LightridersMove
+import io.riddles.lightriders.game.move.MoveType
+import io.riddles.lightriders.game.processor.LightridersLogic
+import io.riddles.lightriders.game.state.LightridersPlayerState
+import io.riddles.lightriders.game.state.LightridersState
+import io.riddles.lightriders.game.state.LightridersStateDeserializer
+import io.riddles.lightriders.server.LightridersSpectatorFeed
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+
+/**
+ * io.riddles.lightriders.LightridersSpectatorFeedSpec
+ *
+ * Checks that a spectator that connects during a game can replay it.
+ *
+ * @author joost
+ */
+
+class LightridersSpectatorFeedSpec extends Specification {
+
+    def "a spectator that connects after the first round gets the whole game"() {
+        setup:
+        LightridersSpectatorFeed feed = new LightridersSpectatorFeed(0, 16)
+        LightridersState state = LightridersEngine.createInitialState(12, 12, 2, new Random(3))
+        feed.publish(state)
+        state = playRound(state)
+        feed.publish(state)
+
+        when:
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), feed.getPort())
+        while (feed.getSubscriberCount() == 0) {
+            Thread.sleep(1)
+        }
+        for (int round = 0; round < 5; round++) {
+            state = playRound(state)
+            feed.publish(state)
+        }
+        feed.close()
+        List<String> lines = socket.getInputStream().newReader(StandardCharsets.UTF_8.name()).readLines()
+        socket.close()
+
+        LightridersState replayed = new LightridersStateDeserializer(new ArrayList<>(), 12, 12)
+                .traverse("[" + lines.join(",") + "]")
+
+        then:
+        lines.size() == 7
+        replayed.getRoundNumber() == state.getRoundNumber()
+        replayed.getBoard().toString() == state.getBoard().toString()
+    }
+
+    private static LightridersState playRound(LightridersState state) {
+        LightridersState nextState = state.createNextState(state.getRoundNumber() + 1)
+        for (LightridersPlayerState playerState : nextState.getPlayerStates()) {
+            playerState.setMove(LightridersMove.of(MoveType.PASS))
+        }
+        LightridersLogic.transform(nextState)
+
+        return nextState
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+
+package io.riddles.lightriders
+
+import io.riddles.lightriders.tournament.LightridersTournament
+import io.riddles.lightriders.tournament.SafeMoveBot
+import spock.lang.Specification
+
+/**
+ * io.riddles.lightriders.LightridersTournamentSpec
+ *
+ * Checks that a tournament with a fixed seed always gives the same
+ * results and that every match is counted once for both bots.
+ *
+ * @author joost
+ */
+
+class LightridersTournamentSpec extends Specification {
+
+    def "a tournament with a fixed seed gives the same results on any amount of threads"() {
+        when:
+        List<String> first = playTournament(1)
+        List<String> second = playTournament(4)
+
+        then:
+        first == second
+    }
+
+    def "wins, draws and losses add up to the matches played"() {
+        setup:
+        LightridersTournament tournament = createTournament()
+
+        when:
+        List<LightridersTournament.Entry> table = tournament.run()
+        int matches = 3 * 4
+
+        then:
+        table.size() == 3
+        table.every { it.getPlayed() == 2 * 4 }
+        table.sum { it.getWins() } + table.sum { it.getDraws() } / 2 == matches
+        table.sum { it.getWins() } == table.sum { it.getLosses() }
+        table.sum { it.getPoints() } == matches
+    }
+
+    private static List<String> playTournament(int threads) {
+        LightridersTournament tournament = createTournament()
+        tournament.setThreads(threads)
+
+        return tournament.run().collect {
+            "${it.getName()} ${it.getWins()} ${it.getDraws()} ${it.getLosses()}".toString()
+        }.sort()
+    }
+
+    private static LightridersTournament createTournament() {
+        LightridersTournament tournament = new LightridersTournament(12, 12, -1, 4, "spec")
+        (0..2).each { tournament.addBot("bot" + it, { new SafeMoveBot() }) }
+
+        return tournament
+    }
+}
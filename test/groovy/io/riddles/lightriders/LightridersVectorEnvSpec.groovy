@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+
+package io.riddles.lightriders
+
+import io.riddles.javainterface.exception.InvalidInputException
+import io.riddles.lightriders.engine.LightridersEngine
+import io.riddles.lightriders.engine.LightridersRandom
+import io.riddles.lightriders.env.LightridersVectorEnv
+import io.riddles.lightriders.game.move.LightridersMove
+import io.riddles.lightriders.game.move.MoveType
+import io.riddles.lightriders.game.processor.LightridersLogic
+import io.riddles.lightriders.game.state.LightridersPlayerState
+import io.riddles.lightriders.game.state.LightridersState
+import spock.lang.Specification
+
+/**
+ * io.riddles.lightriders.LightridersVectorEnvSpec
+ *
+ * Checks that the vectorized environment plays exactly the same games
+ * as LightridersLogic and resets finished games.
+ *
+ * @author joost
+ */
+
+class LightridersVectorEnvSpec extends Specification {
+
+    def "games follow the same rules as the game logic"() {
+        setup:
+        int envCount = 16
+        LightridersVectorEnv env = new LightridersVectorEnv(envCount, players, 10, 10, -1, "env")
+        env.setAutoReset(false)
+        env.reset()
+
+        List<LightridersState> states = (0..<envCount).collect {
+            LightridersEngine.createInitialState(10, 10, players,
+                    new LightridersRandom(LightridersRandom.deriveSeed("env", it)))
+        }
+        Random random = new Random(players)
+        int[] actions = new int[envCount * players]
+
+        when:
+        boolean same = true
+        while (env.getDones().any { it == 0 }) {
+            for (int i = 0; i < actions.length; i++) {
+                actions[i] = random.nextInt(7) - 1 // Includes PASS and invalid actions
+            }
+            env.step(actions)
+
+            for (int e = 0; e < envCount; e++) {
+                LightridersState state = states[e]
+                if (state.getAlivePlayerIds().size() <= 1) continue
+
+                LightridersState nextState = state.createNextState(state.getRoundNumber() + 1)
+                for (LightridersPlayerState playerState : nextState.getPlayerStates()) {
+                    int action = actions[e * players + playerState.getPlayerId()]
+                    playerState.setMove(action >= 0 && action < MoveType.values().length ?
+                            LightridersMove.of(MoveType.values()[action]) :
+                            new LightridersMove(new InvalidInputException("Invalid action")))
+                }
+                LightridersLogic.transform(nextState)
+                states[e] = nextState
+
+                same &= nextState.getBoard().toString() == encode(env, e)
+                same &= env.getRounds()[e] == nextState.getRoundNumber()
+                same &= (env.getDones()[e] == 1) == (nextState.getAlivePlayerIds().size() <= 1)
+                for (LightridersPlayerState playerState : nextState.getPlayerStates()) {
+                    int player = e * players + playerState.getPlayerId()
+                    same &= env.getX()[player] == playerState.getX()
+                    same &= env.getY()[player] == playerState.getY()
+                    same &= (env.getAlive()[player] == 1) == playerState.isAlive()
+                    same &= env.getDirections()[player] == playerState.getDirection().ordinal()
+                }
+            }
+        }
+
+        then:
+        same
+        states.sum { it.getRoundNumber() } > envCount * 3
+
+        where:
+        players << [2, 3, 4]
+    }
+
+    def "finished games are reset with their result in the rewards"() {
+        setup:
+        LightridersVectorEnv env = new LightridersVectorEnv(200, 2, 8, 8, 20, "rewards")
+        env.setParallel(true)
+        env.reset()
+        int[] actions = new int[400]
+        Random random = new Random(1)
+
+        when:
+        int episodes = 0
+        boolean consistent = true
+        for (int step = 0; step < 100; step++) {
+            for (int i = 0; i < actions.length; i++) {
+                actions[i] = random.nextInt(4)
+            }
+            env.step(actions)
+
+            for (int e = 0; e < 200; e++) {
+                float reward0 = env.getRewards()[e * 2]
+                float reward1 = env.getRewards()[e * 2 + 1]
+
+                if (env.getDones()[e] == 1) {
+                    episodes++
+                    int winner = env.getWinners()[e]
+                    consistent &= winner == -1 ? reward0 == 0 && reward1 == 0 : env.getRewards()[e * 2 + winner] == 1 && reward0 + reward1 == 0
+                    consistent &= env.getRounds()[e] == 0 && env.getAlive()[e * 2] == 1 && env.getAlive()[e * 2 + 1] == 1
+                } else {
+                    consistent &= reward0 == 0 && reward1 == 0 && env.getRounds()[e] <= 20
+                }
+            }
+        }
+
+        then:
+        consistent
+        episodes > 400
+    }
+
+    private static String encode(LightridersVectorEnv env, int e) {
+        int cellCount = env.getWidth() * env.getHeight()
+        byte[] cells = env.getCells()
+
+        return (0..<cellCount).collect { i ->
+            byte cell = cells[e * cellCount + i]
+            cell == LightridersVectorEnv.EMPTY ? "." : cell == LightridersVectorEnv.BLOCKED ? "x" :
+                    String.valueOf(cell - LightridersVectorEnv.PLAYER)
+        }.join(",")
+    }
+}
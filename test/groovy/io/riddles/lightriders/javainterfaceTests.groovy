@@ -39,4 +39,17 @@ class javainterfaceTests extends Specification {
         then:
         move.moveType == null;
     }
-}
\ No newline at end of file
+
+    def "LightridersMoveDeserializer ignores case and returns shared moves"() {
+
+        given:
+        LightridersMoveDeserializer deserializer = new LightridersMoveDeserializer();
+
+        expect:
+        deserializer.traverse("UP").is(deserializer.traverse("up"));
+        deserializer.traverse("Left").moveType == MoveType.LEFT;
+        deserializer.traverse("garbage").exception.message == "Move isn't valid";
+        deserializer.traverse("garbage").exception.is(deserializer.traverse("righ").exception);
+        deserializer.traverse(null).moveType == null;
+    }
+}
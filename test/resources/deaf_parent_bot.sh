@@ -0,0 +1,5 @@
+#!/bin/sh
+# Never reads its input, and leaves it open in a child that outlives the bot
+exec 3<&0
+sleep 5 <&3 &
+exec sleep 60
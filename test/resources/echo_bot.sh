@@ -0,0 +1,7 @@
+#!/bin/sh
+# Answers every move request with "up" and writes debug output on stderr
+while read -r line; do
+    case "$line" in
+        action*) echo "debug: $line" >&2; echo "up" ;;
+    esac
+done
@@ -0,0 +1,8 @@
+#!/bin/sh
+# Starts reading its input after 0.4 seconds, then answers every move request with "up"
+sleep 0.4
+while read -r line; do
+    case "$line" in
+        action*) echo "up" ;;
+    esac
+done
@@ -0,0 +1,8 @@
+#!/bin/sh
+# Answers every move request with "up" and can be reused for a new match
+while read -r line; do
+    case "$line" in
+        "action reset") echo "ready" ;;
+        action*) echo "up" ;;
+    esac
+done
@@ -0,0 +1,3 @@
+#!/bin/sh
+# Reads everything but never answers
+cat > /dev/null
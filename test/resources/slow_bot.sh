@@ -0,0 +1,7 @@
+#!/bin/sh
+# Answers every move request with "up", but only after half a second
+while read -r line; do
+    case "$line" in
+        action*) sleep 0.5; echo "up" ;;
+    esac
+done